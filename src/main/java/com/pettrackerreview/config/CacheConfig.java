@@ -1,78 +1,465 @@
 package com.pettrackerreview.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.pettrackerreview.service.ContentPage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.cache.support.SimpleCacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.cache.Cache;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Caffeine caches: bounded by weight with W-TinyLFU admission, so a scan of
+ * one-off keys cannot push out the hot slugs, and expired by its timer wheel
+ * rather than a clock check on every get. Statistics are recorded, and Spring
+ * Boot binds them to Micrometer as cache.gets, cache.puts, cache.evictions,
+ * cache.size, plus cache.load.duration, cache.stale.served and
+ * cache.refreshes from {@link #cacheLoadMetrics}, tagged with the cache name.
+ * <p>
+ * Entries older than app.cache.refresh-after-write are refreshed ahead of
+ * expiry: the stale value keeps being served while one background reload
+ * per key replaces it, so entries written together do not all miss at once.
+ * Reloads call the loader the owning service registers for the cache.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    // Set while RefreshAheadCache reads an entry through computeIfPresent, which
+    // Caffeine reports to the expiry as an update; the entry keeps its age
+    private static final ThreadLocal<Boolean> READING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    // 各缓存的最大权重：单篇内容计 1，列表/集合按元素个数计
+    @Value("${app.cache.blog-posts.max-weight:20000}")
+    private long blogPostsMaxWeight;
+
+    @Value("${app.cache.reviews.max-weight:20000}")
+    private long reviewsMaxWeight;
+
+    @Value("${app.cache.tags.max-weight:5000}")
+    private long tagsMaxWeight;
+
+    // 未命中（未知 slug/标签）缓存的最大条目数
+    @Value("${app.cache.misses.max-entries:1000}")
+    private long maxMissEntries;
+
+    // 写入后多久过期
+    @Value("${app.cache.expire-after-write:1h}")
+    private Duration expireAfterWrite;
+
+    // 写入后多久开始后台刷新（期间继续返回旧值），应小于过期时间
+    @Value("${app.cache.refresh-after-write:50m}")
+    private Duration refreshAfterWrite;
+
+    private final ExecutorService refreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @Bean
     public CacheManager cacheManager() {
         SimpleCacheManager cacheManager = new SimpleCacheManager();
-        
-        // 创建具有过期时间的缓存
+
         Collection<Cache> caches = Arrays.asList(
-            new ExpiringConcurrentMapCache("blogPosts", 3600000), // 1小时过期
-            new ExpiringConcurrentMapCache("reviews", 3600000),   // 1小时过期
-            new ExpiringConcurrentMapCache("tags", 3600000)       // 1小时过期
+            cache("blogPosts", blogPostsMaxWeight),
+            cache("reviews", reviewsMaxWeight),
+            cache("tags", tagsMaxWeight),
+            cache("contentMisses", maxMissEntries)  // 未知键，每条计 1
         );
-        
+
         cacheManager.setCaches(caches);
         return cacheManager;
     }
-    
+
     /**
-     * 自定义支持过期时间的缓存实现
+     * Caffeine's own binder reports load time only for LoadingCaches; these
+     * caches load through Spring's sync lookups, so bind it here
      */
-    public static class ExpiringConcurrentMapCache extends ConcurrentMapCache {
-        private final long expirationTime;
-        private final ConcurrentMap<Object, Long> expirationMap = new ConcurrentHashMap<>();
-        
-        public ExpiringConcurrentMapCache(String name, long expirationTime) {
-            super(name);
-            this.expirationTime = expirationTime;
-        }
-        
+    @Bean
+    public MeterBinder cacheLoadMetrics(CacheManager cacheManager) {
+        return registry -> {
+            for (String name : cacheManager.getCacheNames()) {
+                Cache cache = cacheManager.getCache(name);
+                if (!(cache instanceof CaffeineCache)) {
+                    continue;
+                }
+                FunctionTimer.builder("cache.load.duration", ((CaffeineCache) cache).getNativeCache(),
+                                c -> c.stats().loadCount(), c -> c.stats().totalLoadTime(), TimeUnit.NANOSECONDS)
+                        .tags("cache", name, "cache.manager", "cacheManager")
+                        .description("Time spent computing values for the cache")
+                        .register(registry);
+                if (cache instanceof RefreshAheadCache) {
+                    RefreshAheadCache refreshing = (RefreshAheadCache) cache;
+                    FunctionCounter.builder("cache.stale.served", refreshing, c -> c.staleServed.get())
+                            .tags("cache", name, "cache.manager", "cacheManager")
+                            .description("Lookups answered with a value due for refresh while it was reloaded")
+                            .register(registry);
+                    FunctionCounter.builder("cache.refreshes", refreshing, c -> c.refreshes.get())
+                            .tags("cache", name, "cache.manager", "cacheManager")
+                            .description("Background reloads of entries due for refresh")
+                            .register(registry);
+                }
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private CaffeineCache cache(String name, long maxWeight) {
+        ConcurrentHashMap<Object, EntryStats> entryStats = new ConcurrentHashMap<>();
+        StatsCounter stats = new ConcurrentStatsCounter();
+        return new RefreshAheadCache(name, Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(ENTRY_WEIGHER)
+                .expireAfter(fixedExpiry(expireAfterWrite))
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats(() -> stats)
+                // Runs inside the eviction, before the key can be cached again; explicit
+                // removals drop the statistics in RefreshAheadCache, and a refresh keeps them
+                .evictionListener((key, value, cause) -> entryStats.remove(key))
+                .build(), expireAfterWrite, refreshAfterWrite, refreshExecutor, entryStats, stats);
+    }
+
+    /**
+     * Lists, sets, maps and listing pages weigh as many as they hold, anything else weighs 1
+     */
+    static final Weigher<Object, Object> ENTRY_WEIGHER = (key, value) -> {
+        if (value instanceof ContentPage) {
+            return Math.max(1, ((ContentPage<?>) value).getItems().size());
+        }
+        if (value instanceof Collection) {
+            return Math.max(1, ((Collection<?>) value).size());
+        }
+        if (value instanceof Map) {
+            return Math.max(1, ((Map<?, ?>) value).size());
+        }
+        return 1;
+    };
+
+    /**
+     * Expire a fixed time after each write. Given as an Expiry so Caffeine
+     * tracks it in its timer wheel.
+     */
+    static Expiry<Object, Object> fixedExpiry(Duration duration) {
+        long nanos = duration.toNanos();
+        return new Expiry<Object, Object>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return READING.get() ? currentDuration : nanos;
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    /**
+     * Refresh-ahead. Once an entry is older than the refresh time, lookups
+     * keep returning it while exactly one reload per key computes the
+     * replacement on the refresh executor. The reload calls the cache's
+     * loader, which computes the value from the key alone, and only replaces
+     * the exact value it started from, so an eviction that happens meanwhile
+     * (a content save) is never overwritten with older data. A cache without
+     * a loader is not refreshed; its entries simply expire. True misses load
+     * in the caller as usual, once per key for sync lookups.
+     * <p>
+     * Every lookup is reported to the access listener, if one is set, so hot
+     * keys can be re-primed after they are evicted. Hits and the last access
+     * are kept per entry for the cache management API.
+     */
+    public static class RefreshAheadCache extends CaffeineCache {
+        private final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache;
+        private final long expireNanos;
+        private final long refreshNanos;
+        private final ExecutorService executor;
+        private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+        private final ConcurrentHashMap<Object, EntryStats> entryStats;
+        private final StatsCounter stats;
+        final AtomicLong staleServed = new AtomicLong();
+        final AtomicLong refreshes = new AtomicLong();
+        private volatile Consumer<Object> accessListener;
+        private volatile Function<Object, Object> loader;
+        private volatile Supplier<Object> version;
+        // Key and data version of this thread's last lookup miss, checked by the put that follows it
+        private final ThreadLocal<Object[]> lastMiss = new ThreadLocal<>();
+
+        RefreshAheadCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                          Duration expireAfterWrite, Duration refreshAfterWrite, ExecutorService executor,
+                          ConcurrentHashMap<Object, EntryStats> entryStats, StatsCounter stats) {
+            super(name, cache);
+            this.entryStats = entryStats;
+            this.stats = stats;
+            this.cache = cache;
+            this.expireNanos = expireAfterWrite.toNanos();
+            this.refreshNanos = refreshAfterWrite.toNanos();
+            this.executor = executor;
+        }
+
+        /**
+         * Compute an entry's current value from its key, or null if the key
+         * no longer has one; used for background refreshes
+         */
+        public void setLoader(Function<Object, Object> loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * Current version of the data values are computed from, compared by
+         * identity. A value computed while the version changed is not kept:
+         * the publish that changed it may already have evicted the key.
+         */
+        public void setVersion(Supplier<Object> version) {
+            this.version = version;
+        }
+
+        public void setAccessListener(Consumer<Object> accessListener) {
+            this.accessListener = accessListener;
+        }
+
+        public long getStaleServed() {
+            return staleServed.get();
+        }
+
+        public long getRefreshes() {
+            return refreshes.get();
+        }
+
+        /**
+         * Hits and last access of a cached key, or null if it was never hit
+         */
+        public EntryStats getEntryStats(Object key) {
+            return entryStats.get(key);
+        }
+
+        /**
+         * Time since the key's value was written, or empty if it is not cached
+         */
+        public OptionalLong getAge(Object key, TimeUnit unit) {
+            OptionalLong remaining = cache.policy().expireVariably()
+                    .map(policy -> policy.getExpiresAfter(key, TimeUnit.NANOSECONDS))
+                    .orElse(OptionalLong.empty());
+            return remaining.isPresent()
+                    ? OptionalLong.of(unit.convert(expireNanos - remaining.getAsLong(), TimeUnit.NANOSECONDS))
+                    : OptionalLong.empty();
+        }
+
         @Override
-        public void put(Object key, Object value) {
-            super.put(key, value);
-            expirationMap.put(key, System.currentTimeMillis() + expirationTime);
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            Object stored = read(key);
+            if (stored != null) {
+                return (T) fromStoreValue(stored);
+            }
+            Supplier<Object> currentVersion = version;
+            Object seen = currentVersion != null ? currentVersion.get() : null;
+            // A true miss loads here, once per key
+            T value = super.get(key, valueLoader);
+            if (currentVersion != null && currentVersion.get() != seen) {
+                evictIfPresent(key);
+            }
+            return value;
         }
-        
+
         @Override
-        public ValueWrapper get(Object key) {
-            // 检查是否过期
-            Long expiration = expirationMap.get(key);
-            if (expiration != null && System.currentTimeMillis() > expiration) {
-                // 过期则删除
-                super.evict(key);
-                expirationMap.remove(key);
-                return null;
+        protected Object lookup(Object key) {
+            Object stored = read(key);
+            Supplier<Object> currentVersion = version;
+            if (stored == null) {
+                stats.recordMisses(1);
+                if (currentVersion != null) {
+                    lastMiss.set(new Object[] {key, currentVersion.get()});
+                }
+            } else {
+                lastMiss.remove();
             }
-            return super.get(key);
+            return stored;
         }
-        
+
+        /**
+         * Store the value computed after a lookup miss, unless the data
+         * version changed since the miss. The check runs under the key's
+         * lock, so a publish either sees the stored value and evicts it or
+         * has already changed the version.
+         */
+        @Override
+        public void put(Object key, Object value) {
+            Object[] miss = lastMiss.get();
+            lastMiss.remove();
+            Supplier<Object> currentVersion = version;
+            if (currentVersion == null || miss == null || !miss[0].equals(key)) {
+                super.put(key, value);
+                return;
+            }
+            Object seen = miss[1];
+            cache.asMap().compute(key, (k, old) -> currentVersion.get() == seen ? toStoreValue(value) : old);
+        }
+
         @Override
         public void evict(Object key) {
-            super.evict(key);
-            expirationMap.remove(key);
+            evictIfPresent(key);
+        }
+
+        /**
+         * Remove the entry and its statistics in one step, so a value cached
+         * again right after keeps its own
+         */
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean[] removed = new boolean[1];
+            cache.asMap().computeIfPresent(key, (k, value) -> {
+                entryStats.remove(k);
+                removed[0] = true;
+                return null;
+            });
+            return removed[0];
         }
-        
+
         @Override
         public void clear() {
-            super.clear();
-            expirationMap.clear();
+            invalidate();
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean removed = false;
+            for (Object key : cache.asMap().keySet()) {
+                removed |= evictIfPresent(key);
+            }
+            return removed;
+        }
+
+        /**
+         * The stored value (fresh or stale), or null on a miss. The value and
+         * its statistics are read in one computeIfPresent, which counts as the
+         * entry's only access, and statistics exist only while the entry does.
+         * A value due for refresh starts its reload.
+         */
+        private Object read(Object key) {
+            Consumer<Object> listener = accessListener;
+            if (listener != null) {
+                listener.accept(key);
+            }
+            Object stored;
+            READING.set(Boolean.TRUE);
+            try {
+                stored = cache.asMap().computeIfPresent(key, (k, value) -> {
+                    entryStats.computeIfAbsent(k, x -> new EntryStats()).hit();
+                    return value;
+                });
+            } finally {
+                READING.set(Boolean.FALSE);
+            }
+            if (stored == null) {
+                return null;
+            }
+            stats.recordHits(1);
+            Function<Object, Object> currentLoader = loader;
+            if (currentLoader != null && isDueForRefresh(key)) {
+                staleServed.incrementAndGet();
+                if (refreshing.add(key)) {
+                    refreshAsync(key, stored, currentLoader);
+                }
+            }
+            return stored;
+        }
+
+        private boolean isDueForRefresh(Object key) {
+            if (refreshNanos >= expireNanos) {
+                return false;
+            }
+            OptionalLong remaining = cache.policy().expireVariably()
+                    .map(policy -> policy.getExpiresAfter(key, TimeUnit.NANOSECONDS))
+                    .orElse(OptionalLong.empty());
+            return remaining.isPresent() && expireNanos - remaining.getAsLong() >= refreshNanos;
+        }
+
+        private void refreshAsync(Object key, Object stored, Function<Object, Object> loader) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        Object value = loader.apply(key);
+                        // Null: its item or tag is gone, and the publish that removed it evicted the entry
+                        if (value != null) {
+                            cache.asMap().replace(key, stored, toStoreValue(value));
+                            refreshes.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        logger.warn("Refreshing {} in cache {} failed: {}", key, getName(), e.toString());
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                });
+            } catch (RuntimeException e) {
+                refreshing.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Hits and last access of one cache entry
+     */
+    public static final class EntryStats {
+        private final LongAdder hits = new LongAdder();
+        private volatile long lastAccess;
+
+        void hit() {
+            hits.increment();
+            lastAccess = System.currentTimeMillis();
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * Epoch millis of the last hit
+         */
+        public long getLastAccess() {
+            return lastAccess;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.pettrackerreview.config;
+
+import com.pettrackerreview.service.ContentBodyStore;
+import com.pettrackerreview.service.ContentInterner;
+import com.pettrackerreview.service.ContentSnapshot;
+import com.pettrackerreview.service.YamlContentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/contentmemory: heap usage next to what the loaded content holds,
+ * to size the heap for a given corpus
+ */
+@Component
+@Endpoint(id = "contentmemory")
+public class ContentMemoryEndpoint {
+
+    @Autowired
+    private YamlContentService contentService;
+
+    @Autowired
+    private ContentBodyStore bodyStore;
+
+    @Autowired
+    private ContentInterner interner;
+
+    @ReadOperation
+    public Map<String, Object> contentMemory() {
+        ContentSnapshot snapshot = contentService.getSnapshot();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        Map<String, Object> heapInfo = new LinkedHashMap<>();
+        heapInfo.put("used", heap.getUsed());
+        heapInfo.put("committed", heap.getCommitted());
+        heapInfo.put("max", heap.getMax());
+
+        Map<String, Object> items = new LinkedHashMap<>();
+        items.put("blogPosts", snapshot.getBlogPosts().size());
+        items.put("reviews", snapshot.getReviews().size());
+
+        Map<String, Object> bodies = new LinkedHashMap<>();
+        bodies.put("blogPosts", bodyStore.measure(snapshot.getBlogPosts().all()));
+        bodies.put("reviews", bodyStore.measure(snapshot.getReviews().all()));
+        bodies.put("store", bodyStore.getStatistics());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("heap", heapInfo);
+        result.put("items", items);
+        result.put("bodies", bodies);
+        result.put("interned", interner.getStatistics());
+        return result;
+    }
+}
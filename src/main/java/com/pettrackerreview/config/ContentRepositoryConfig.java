@@ -0,0 +1,45 @@
+package com.pettrackerreview.config;
+
+import com.pettrackerreview.service.ContentRepository;
+import com.pettrackerreview.service.H2ContentRepository;
+import com.pettrackerreview.service.YamlContentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Selects where blog and review documents are stored: YAML files in the
+ * content directories (default) or an embedded H2 database
+ */
+@Configuration
+public class ContentRepositoryConfig {
+
+    @Value("${app.content.dir:src/main/resources}")
+    private String contentDir;
+
+    // yaml 或 h2
+    @Value("${app.content.repository.type:yaml}")
+    private String type;
+
+    // H2 数据库文件（不含 .mv.db 扩展名），默认放在内容目录下
+    @Value("${app.content.repository.h2-file:}")
+    private String h2File;
+
+    @Bean
+    public ContentRepository contentRepository() throws IOException {
+        switch (type.trim().toLowerCase()) {
+            case "yaml":
+                return new YamlContentRepository();
+            case "h2":
+                File databaseFile = h2File.trim().isEmpty()
+                        ? new File(contentDir, ".content-store")
+                        : new File(h2File.trim());
+                return new H2ContentRepository(databaseFile);
+            default:
+                throw new IllegalArgumentException("Unknown app.content.repository.type: " + type);
+        }
+    }
+}
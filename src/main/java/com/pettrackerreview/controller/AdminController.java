@@ -1,12 +1,15 @@
 package com.pettrackerreview.controller;
 
 import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentItem;
 import com.pettrackerreview.model.Review;
 import com.pettrackerreview.model.Image;
 import com.pettrackerreview.model.LocalizedContent;
+import com.pettrackerreview.service.ContentDraftStore;
 import com.pettrackerreview.service.YamlContentService;
 import com.pettrackerreview.service.ImageService;
 import com.pettrackerreview.service.SearchEngineService; // Added import
+import com.pettrackerreview.util.CssVersionUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -24,6 +27,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList; // Added import
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,12 +40,18 @@ public class AdminController {
     @Autowired
     private YamlContentService contentService;
     
+    @Autowired
+    private ContentDraftStore draftStore;
+    
     @Autowired
     private ImageService imageService;
     
     @Autowired
     private SearchEngineService searchEngineService; // Added service
     
+    @Autowired
+    private CssVersionUtil cssVersionUtil;
+    
     @GetMapping("/login")
     public String login() {
         return "admin/login";
@@ -55,8 +65,8 @@ public class AdminController {
         
         model.addAttribute("recentBlogs", recentBlogs);
         model.addAttribute("recentReviews", recentReviews);
-        model.addAttribute("totalBlogs", contentService.getAllBlogPosts().size());
-        model.addAttribute("totalReviews", contentService.getAllReviews().size());
+        model.addAttribute("totalBlogs", contentService.getManagedBlogPosts().size());
+        model.addAttribute("totalReviews", contentService.getManagedReviews().size());
         model.addAttribute("totalImages", imageStats.get("totalImages"));
         model.addAttribute("imageStats", imageStats);
         
@@ -65,9 +75,11 @@ public class AdminController {
     
     // Blog Management
     @GetMapping("/blogs")
-    public String blogList(Model model) {
-        List<BlogPost> blogs = contentService.getAllBlogPosts();
+    public String blogList(Model model, @RequestParam(required = false) String tag) {
+        List<BlogPost> blogs = contentService.getManagedBlogPosts(tag);
         model.addAttribute("blogs", blogs);
+        model.addAttribute("selectedTag", tag);
+        model.addAttribute("drafts", draftStore.getBlogDrafts());
         return "admin/blogs/list";
     }
     
@@ -80,12 +92,17 @@ public class AdminController {
     
     @GetMapping("/blogs/edit/{slug}")
     public String editBlog(@PathVariable String slug, Model model) {
-        BlogPost blog = contentService.getBlogPostBySlug(slug);
+        // Unsaved-to-public changes take precedence over the live version
+        BlogPost draft = draftStore.getBlogDraft(slug);
+        BlogPost blog = draft != null ? draft : contentService.getManagedBlogPost(slug);
         if (blog == null) {
             return "redirect:/admin/blogs";
         }
         
         model.addAttribute("blog", blog);
+        model.addAttribute("originalSlug", slug);
+        model.addAttribute("draft", draft != null);
+        model.addAttribute("version", draft != null ? blogDraftBaseVersion(slug) : contentService.getBlogPostVersion(slug));
         model.addAttribute("action", "edit");
         return "admin/blogs/form";
     }
@@ -93,12 +110,14 @@ public class AdminController {
     @PostMapping("/blogs/save")
     public String saveBlog(@ModelAttribute BlogPost blog, 
                           @RequestParam(required = false) String originalSlug,
+                          @RequestParam(required = false) String version,
                           @RequestParam Map<String, String> localizedContent,
                           @RequestParam(required = false) String tags,
+                          @RequestParam(defaultValue = "false") boolean publish,
                           RedirectAttributes redirectAttributes) {
         try {
-            // Set current time if creating new blog
-            if (blog.getDate() == null) {
+            // Set current time when publishing without a scheduled date
+            if (publish && blog.getDate() == null) {
                 blog.setDate(LocalDateTime.now());
             }
             
@@ -144,14 +163,18 @@ public class AdminController {
                 blog.setLocalizedContent(localizedMap);
             }
             
-            // Delete old file if slug changed
-            if (originalSlug != null && !originalSlug.isEmpty() && 
-                !originalSlug.equals(blog.getSlug()) && !originalSlug.equals(blog.generateSlug())) {
-                contentService.deleteBlogPost(originalSlug);
+            String draftKey = draftKey(originalSlug, blog);
+            if (!publish) {
+                // Drafts go to their own store; the public site and its caches are not touched
+                draftStore.saveBlogDraft(draftKey, blog, version);
+                redirectAttributes.addFlashAttribute("successMessage", "Draft saved. The public site is unchanged.");
+                return "redirect:/admin/blogs/edit/" + draftKey;
             }
             
-            contentService.saveBlogPost(blog);
-            redirectAttributes.addFlashAttribute("successMessage", "Blog post saved successfully!");
+            // Renames and the version check happen in one locked write
+            contentService.saveBlogPost(blog, originalSlug, version);
+            draftStore.deleteBlogDraft(draftKey);
+            redirectAttributes.addFlashAttribute("successMessage", "Blog post published successfully!");
             
         } catch (IOException e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error saving blog post: " + e.getMessage());
@@ -164,6 +187,7 @@ public class AdminController {
     public String deleteBlog(@PathVariable String slug, RedirectAttributes redirectAttributes) {
         try {
             contentService.deleteBlogPost(slug);
+            draftStore.deleteBlogDraft(slug);
             redirectAttributes.addFlashAttribute("successMessage", "Blog post deleted successfully!");
         } catch (IOException e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error deleting blog post: " + e.getMessage());
@@ -174,9 +198,11 @@ public class AdminController {
     
     // Review Management
     @GetMapping("/reviews")
-    public String reviewList(Model model) {
-        List<Review> reviews = contentService.getAllReviews();
+    public String reviewList(Model model, @RequestParam(required = false) String tag) {
+        List<Review> reviews = contentService.getManagedReviews(tag);
         model.addAttribute("reviews", reviews);
+        model.addAttribute("selectedTag", tag);
+        model.addAttribute("drafts", draftStore.getReviewDrafts());
         return "admin/reviews/list";
     }
     
@@ -189,12 +215,17 @@ public class AdminController {
     
     @GetMapping("/reviews/edit/{slug}")
     public String editReview(@PathVariable String slug, Model model) {
-        Review review = contentService.getReviewBySlug(slug);
+        // Unsaved-to-public changes take precedence over the live version
+        Review draft = draftStore.getReviewDraft(slug);
+        Review review = draft != null ? draft : contentService.getManagedReview(slug);
         if (review == null) {
             return "redirect:/admin/reviews";
         }
         
         model.addAttribute("review", review);
+        model.addAttribute("originalSlug", slug);
+        model.addAttribute("draft", draft != null);
+        model.addAttribute("version", draft != null ? reviewDraftBaseVersion(slug) : contentService.getReviewVersion(slug));
         model.addAttribute("action", "edit");
         return "admin/reviews/form";
     }
@@ -202,12 +233,14 @@ public class AdminController {
     @PostMapping("/reviews/save")
     public String saveReview(@ModelAttribute Review review, 
                            @RequestParam(required = false) String originalSlug,
+                           @RequestParam(required = false) String version,
                            @RequestParam Map<String, String> localizedContent,
                            @RequestParam(required = false) String tags,
+                           @RequestParam(defaultValue = "false") boolean publish,
                            RedirectAttributes redirectAttributes) {
         try {
-            // Set current time if creating new review
-            if (review.getDate() == null) {
+            // Set current time when publishing without a scheduled date
+            if (publish && review.getDate() == null) {
                 review.setDate(LocalDateTime.now());
             }
             
@@ -259,14 +292,18 @@ public class AdminController {
                 review.setLocalizedContent(localizedMap);
             }
             
-            // Delete old file if slug changed
-            if (originalSlug != null && !originalSlug.isEmpty() && 
-                !originalSlug.equals(review.getSlug()) && !originalSlug.equals(review.generateSlug())) {
-                contentService.deleteReview(originalSlug);
+            String draftKey = draftKey(originalSlug, review);
+            if (!publish) {
+                // Drafts go to their own store; the public site and its caches are not touched
+                draftStore.saveReviewDraft(draftKey, review, version);
+                redirectAttributes.addFlashAttribute("successMessage", "Draft saved. The public site is unchanged.");
+                return "redirect:/admin/reviews/edit/" + draftKey;
             }
             
-            contentService.saveReview(review);
-            redirectAttributes.addFlashAttribute("successMessage", "Review saved successfully!");
+            // Renames and the version check happen in one locked write
+            contentService.saveReview(review, originalSlug, version);
+            draftStore.deleteReviewDraft(draftKey);
+            redirectAttributes.addFlashAttribute("successMessage", "Review published successfully!");
             
         } catch (IOException e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error saving review: " + e.getMessage());
@@ -279,6 +316,7 @@ public class AdminController {
     public String deleteReview(@PathVariable String slug, RedirectAttributes redirectAttributes) {
         try {
             contentService.deleteReview(slug);
+            draftStore.deleteReviewDraft(slug);
             redirectAttributes.addFlashAttribute("successMessage", "Review deleted successfully!");
         } catch (IOException e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error deleting review: " + e.getMessage());
@@ -287,6 +325,131 @@ public class AdminController {
         return "redirect:/admin/reviews";
     }
     
+    // Drafts
+    @GetMapping("/blogs/preview/{slug}")
+    public String previewBlog(@PathVariable String slug, Model model) {
+        BlogPost draft = draftStore.getBlogDraft(slug);
+        BlogPost blog = draft != null ? draft : contentService.getManagedBlogPost(slug);
+        if (blog == null) {
+            return "redirect:/admin/blogs";
+        }
+        
+        model.addAttribute("blogPost", blog);
+        model.addAttribute("relatedPosts", Collections.emptyList());
+        addPreviewAttributes(model, blog);
+        return "blog/detail";
+    }
+    
+    @GetMapping("/reviews/preview/{slug}")
+    public String previewReview(@PathVariable String slug, Model model) {
+        Review draft = draftStore.getReviewDraft(slug);
+        Review review = draft != null ? draft : contentService.getManagedReview(slug);
+        if (review == null) {
+            return "redirect:/admin/reviews";
+        }
+        
+        model.addAttribute("review", review);
+        model.addAttribute("relatedReviews", Collections.emptyList());
+        addPreviewAttributes(model, review);
+        return "reviews/detail";
+    }
+    
+    @PostMapping("/blogs/drafts/publish/{slug}")
+    public String publishBlogDraft(@PathVariable String slug, RedirectAttributes redirectAttributes) {
+        try {
+            BlogPost draft = draftStore.getBlogDraft(slug);
+            if (draft == null) {
+                redirectAttributes.addFlashAttribute("errorMessage", "Draft not found");
+                return "redirect:/admin/blogs";
+            }
+            if (draft.getDate() == null) {
+                draft.setDate(LocalDateTime.now());
+            }
+            // Fails with a conflict if the post was published again since the draft was started
+            contentService.saveBlogPost(draft, slug, blogDraftBaseVersion(slug));
+            draftStore.deleteBlogDraft(slug);
+            redirectAttributes.addFlashAttribute("successMessage", "Blog post published successfully!");
+        } catch (IOException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Error publishing draft: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/blogs";
+    }
+    
+    @PostMapping("/reviews/drafts/publish/{slug}")
+    public String publishReviewDraft(@PathVariable String slug, RedirectAttributes redirectAttributes) {
+        try {
+            Review draft = draftStore.getReviewDraft(slug);
+            if (draft == null) {
+                redirectAttributes.addFlashAttribute("errorMessage", "Draft not found");
+                return "redirect:/admin/reviews";
+            }
+            if (draft.getDate() == null) {
+                draft.setDate(LocalDateTime.now());
+            }
+            contentService.saveReview(draft, slug, reviewDraftBaseVersion(slug));
+            draftStore.deleteReviewDraft(slug);
+            redirectAttributes.addFlashAttribute("successMessage", "Review published successfully!");
+        } catch (IOException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Error publishing draft: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/reviews";
+    }
+    
+    @PostMapping("/blogs/drafts/delete/{slug}")
+    public String discardBlogDraft(@PathVariable String slug, RedirectAttributes redirectAttributes) {
+        try {
+            draftStore.deleteBlogDraft(slug);
+            redirectAttributes.addFlashAttribute("successMessage", "Draft discarded");
+        } catch (IOException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Error discarding draft: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/blogs";
+    }
+    
+    @PostMapping("/reviews/drafts/delete/{slug}")
+    public String discardReviewDraft(@PathVariable String slug, RedirectAttributes redirectAttributes) {
+        try {
+            draftStore.deleteReviewDraft(slug);
+            redirectAttributes.addFlashAttribute("successMessage", "Draft discarded");
+        } catch (IOException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Error discarding draft: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/reviews";
+    }
+    
+    // Draft key: the slug of the published item being edited, or the draft's own slug if it is new
+    private String draftKey(String originalSlug, ContentItem item) {
+        if (originalSlug != null && !originalSlug.isEmpty()) {
+            return originalSlug;
+        }
+        if (item.getSlug() == null || item.getSlug().trim().isEmpty()) {
+            item.setSlug(item.generateSlug());
+        }
+        return item.getSlug();
+    }
+    
+    // Version a draft was started from; drafts saved without one fall back to the live version
+    private String blogDraftBaseVersion(String key) {
+        String version = draftStore.getBlogDraftBaseVersion(key);
+        return version != null ? version : contentService.getBlogPostVersion(key);
+    }
+    
+    private String reviewDraftBaseVersion(String key) {
+        String version = draftStore.getReviewDraftBaseVersion(key);
+        return version != null ? version : contentService.getReviewVersion(key);
+    }
+    
+    private void addPreviewAttributes(Model model, ContentItem item) {
+        model.addAttribute("pageTitle", "[Preview] " + (item.getMetaTitle() != null && !item.getMetaTitle().isEmpty() ? item.getMetaTitle() : item.getTitle()));
+        model.addAttribute("metaDescription", item.getMetaDescription());
+        model.addAttribute("keywords", String.join(", ", item.getTags() != null ? item.getTags() : Collections.emptyList()));
+        model.addAttribute("cssVersion", cssVersionUtil.getVersionParam());
+    }
+    
     // Utility method to convert comma-separated string to list
     private List<String> stringToList(String str) {
         if (str == null || str.trim().isEmpty()) {
@@ -334,15 +497,20 @@ public class AdminController {
     }
     
     @PostMapping("/import")
-    public String importContent(@RequestParam("file") MultipartFile file,
+    public String importContent(@RequestParam("file") List<MultipartFile> files,
                               @RequestParam("contentType") String contentType,
                               RedirectAttributes redirectAttributes) {
         
         // Validate if file is empty
-        if (file.isEmpty()) {
+        files = files.stream().filter(f -> !f.isEmpty()).collect(Collectors.toList());
+        if (files.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "Please select a file to import");
             return "redirect:/admin/import";
         }
+        if (files.size() > 1) {
+            return importBatch(files, contentType, redirectAttributes);
+        }
+        MultipartFile file = files.get(0);
         
         try {
             ImportResult result = contentService.importYamlFile(file, contentType);
@@ -367,6 +535,37 @@ public class AdminController {
         }
     }
     
+    /**
+     * Several files are imported as one batch, synced and published together
+     */
+    private String importBatch(List<MultipartFile> files, String contentType, RedirectAttributes redirectAttributes) {
+        try {
+            List<ImportResult> results = contentService.importYamlFiles(files, contentType);
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (!results.get(i).isSuccess()) {
+                    failures.add(files.get(i).getOriginalFilename() + ": " + results.get(i).getMessage());
+                }
+            }
+            int imported = results.size() - failures.size();
+            if (imported > 0) {
+                redirectAttributes.addFlashAttribute("successMessage",
+                        "Imported " + imported + " of " + results.size() + " files");
+            }
+            if (!failures.isEmpty()) {
+                redirectAttributes.addFlashAttribute("errorMessage",
+                        "Failed to import " + failures.size() + " files: " + String.join("; ", failures));
+            }
+            if (imported == 0) {
+                return "redirect:/admin/import";
+            }
+            return "blogs".equals(contentType) ? "redirect:/admin/blogs" : "redirect:/admin/reviews";
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Import failed: " + e.getMessage());
+            return "redirect:/admin/import";
+        }
+    }
+    
     // Preview functionality
     @PostMapping("/preview")
     public String previewContent(@RequestParam("file") MultipartFile file,
@@ -860,7 +1059,8 @@ public class AdminController {
     @GetMapping("/blogs/yaml/edit/{slug}")
     public String editBlogYaml(@PathVariable String slug, Model model, RedirectAttributes redirectAttributes) {
         try {
-            BlogPost blog = contentService.getBlogPostBySlug(slug);
+            BlogPost draft = draftStore.getBlogDraft(slug);
+            BlogPost blog = draft != null ? draft : contentService.getManagedBlogPost(slug);
             if (blog == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "Blog post not found");
                 return "redirect:/admin/blogs";
@@ -870,6 +1070,8 @@ public class AdminController {
             String yamlContent = contentService.convertBlogPostToYaml(blog);
             model.addAttribute("yamlContent", yamlContent);
             model.addAttribute("slug", slug);
+            model.addAttribute("version", draft != null ? blogDraftBaseVersion(slug) : contentService.getBlogPostVersion(slug));
+            model.addAttribute("draft", draft != null);
             model.addAttribute("contentType", "blogs");
             model.addAttribute("action", "edit");
             return "admin/yaml-editor";
@@ -882,7 +1084,8 @@ public class AdminController {
     @GetMapping("/reviews/yaml/edit/{slug}")
     public String editReviewYaml(@PathVariable String slug, Model model, RedirectAttributes redirectAttributes) {
         try {
-            Review review = contentService.getReviewBySlug(slug);
+            Review draft = draftStore.getReviewDraft(slug);
+            Review review = draft != null ? draft : contentService.getManagedReview(slug);
             if (review == null) {
                 redirectAttributes.addFlashAttribute("errorMessage", "Review not found");
                 return "redirect:/admin/reviews";
@@ -892,6 +1095,8 @@ public class AdminController {
             String yamlContent = contentService.convertReviewToYaml(review);
             model.addAttribute("yamlContent", yamlContent);
             model.addAttribute("slug", slug);
+            model.addAttribute("version", draft != null ? reviewDraftBaseVersion(slug) : contentService.getReviewVersion(slug));
+            model.addAttribute("draft", draft != null);
             model.addAttribute("contentType", "reviews");
             model.addAttribute("action", "edit");
             return "admin/yaml-editor";
@@ -960,32 +1165,46 @@ public class AdminController {
     public String saveYamlContent(@RequestParam("yamlContent") String yamlContent,
                                  @RequestParam("contentType") String contentType,
                                  @RequestParam(value = "slug", required = false) String slug,
+                                 @RequestParam(value = "version", required = false) String version,
                                  @RequestParam("action") String action,
+                                 @RequestParam(defaultValue = "false") boolean publish,
                                  RedirectAttributes redirectAttributes) {
         try {
             if ("blogs".equals(contentType)) {
                 BlogPost blogPost = contentService.validateAndParseBlogPost(yamlContent);
-                
-                // If editing and slug changed, delete the old file
-                if ("edit".equals(action) && slug != null && !slug.isEmpty() && 
-                    !slug.equals(blogPost.getSlug()) && !slug.equals(blogPost.generateSlug())) {
-                    contentService.deleteBlogPost(slug);
+                String draftKey = draftKey("edit".equals(action) ? slug : null, blogPost);
+                if (!publish) {
+                    draftStore.saveBlogDraft(draftKey, blogPost, version);
+                    redirectAttributes.addFlashAttribute("successMessage", "Draft saved. The public site is unchanged.");
+                    return "redirect:/admin/blogs/yaml/edit/" + draftKey;
                 }
                 
-                contentService.saveBlogPost(blogPost);
-                redirectAttributes.addFlashAttribute("successMessage", "Blog post saved successfully!");
+                // If editing and slug changed, the old file is replaced in the same write
+                if ("edit".equals(action)) {
+                    contentService.saveBlogPost(blogPost, slug, version);
+                } else {
+                    contentService.saveBlogPost(blogPost);
+                }
+                draftStore.deleteBlogDraft(draftKey);
+                redirectAttributes.addFlashAttribute("successMessage", "Blog post published successfully!");
                 return "redirect:/admin/blogs";
             } else if ("reviews".equals(contentType)) {
                 Review review = contentService.validateAndParseReview(yamlContent);
-                
-                // If editing and slug changed, delete the old file
-                if ("edit".equals(action) && slug != null && !slug.isEmpty() && 
-                    !slug.equals(review.getSlug()) && !slug.equals(review.generateSlug())) {
-                    contentService.deleteReview(slug);
+                String draftKey = draftKey("edit".equals(action) ? slug : null, review);
+                if (!publish) {
+                    draftStore.saveReviewDraft(draftKey, review, version);
+                    redirectAttributes.addFlashAttribute("successMessage", "Draft saved. The public site is unchanged.");
+                    return "redirect:/admin/reviews/yaml/edit/" + draftKey;
                 }
                 
-                contentService.saveReview(review);
-                redirectAttributes.addFlashAttribute("successMessage", "Review saved successfully!");
+                // If editing and slug changed, the old file is replaced in the same write
+                if ("edit".equals(action)) {
+                    contentService.saveReview(review, slug, version);
+                } else {
+                    contentService.saveReview(review);
+                }
+                draftStore.deleteReviewDraft(draftKey);
+                redirectAttributes.addFlashAttribute("successMessage", "Review published successfully!");
                 return "redirect:/admin/reviews";
             } else {
                 redirectAttributes.addFlashAttribute("errorMessage", "Unsupported content type: " + contentType);
@@ -997,6 +1216,7 @@ public class AdminController {
             redirectAttributes.addFlashAttribute("yamlContent", yamlContent);
             redirectAttributes.addFlashAttribute("contentType", contentType);
             redirectAttributes.addFlashAttribute("slug", slug);
+            redirectAttributes.addFlashAttribute("version", version);
             redirectAttributes.addFlashAttribute("action", action);
             return "redirect:/admin/yaml-editor";
         }
@@ -1,12 +1,25 @@
 package com.pettrackerreview.controller;
 
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.service.CacheInspector;
+import com.pettrackerreview.service.CachePrimer;
+import com.pettrackerreview.service.YamlContentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 @RestController
 @RequestMapping("/api/cache")
@@ -15,12 +28,81 @@ public class CacheController {
     @Autowired
     private CacheManager cacheManager;
     
+    @Autowired
+    private YamlContentService contentService;
+    
+    @Autowired
+    private CachePrimer cachePrimer;
+    
+    @Autowired
+    private CacheInspector cacheInspector;
+    
+    /**
+     * Size, hit ratio, loads and evictions per cache, and the overall hit ratio
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getCacheStatistics() {
+        return cacheInspector.getStatistics();
+    }
+    
+    /**
+     * Entries of one cache, most hit first: key, weight, referenced bytes, age, hits and last access
+     */
+    @GetMapping("/{cacheName}/entries")
+    public ResponseEntity<List<Map<String, Object>>> getCacheEntries(@PathVariable String cacheName,
+                                                                     @RequestParam(defaultValue = "500") int limit) {
+        List<Map<String, Object>> entries = cacheInspector.getEntries(cacheName, limit);
+        return entries != null ? ResponseEntity.ok(entries) : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Evict the entries of one cache whose key matches a regular expression, e.g. blogPage-.*
+     */
+    @PostMapping("/{cacheName}/evict")
+    public ResponseEntity<?> evictByPattern(@PathVariable String cacheName, @RequestParam String pattern) {
+        Pattern compiled;
+        try {
+            compiled = Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            return ResponseEntity.badRequest().body("Invalid pattern: " + e.getDescription());
+        }
+        List<String> evicted = cacheInspector.evictMatching(cacheName, compiled);
+        if (evicted == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!evicted.isEmpty()) {
+            cachePrimer.requestPriming();
+        }
+        return ResponseEntity.ok(evicted);
+    }
+    
+    /**
+     * Dry run: the cache entries that saving this YAML document would evict, without saving it
+     * @param contentType "blogs" or "reviews"
+     * @param originalSlug slug of the item the document replaces when it renames it
+     */
+    @PostMapping("/preview-save/{contentType}")
+    public ResponseEntity<?> previewSaveEvictions(@PathVariable String contentType,
+                                                  @RequestParam(required = false) String originalSlug,
+                                                  @RequestBody String yamlContent) {
+        try {
+            ContentItem item = "reviews".equals(contentType)
+                    ? contentService.validateAndParseReview(yamlContent)
+                    : contentService.validateAndParseBlogPost(yamlContent);
+            return ResponseEntity.ok(contentService.previewSaveEvictions(contentType, item, originalSlug));
+        } catch (RuntimeException e) {
+            // Validation and YAML parse errors
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @PostMapping("/clear")
     public String clearAllCaches() {
         if (cacheManager != null) {
             cacheManager.getCacheNames().forEach(name -> {
                 Objects.requireNonNull(cacheManager.getCache(name)).clear();
             });
+            cachePrimer.requestPriming();
             return "All caches cleared successfully";
         } else {
             return "Cache manager not available";
@@ -31,6 +113,7 @@ public class CacheController {
     public String clearBlogPostsCache() {
         if (cacheManager != null && cacheManager.getCache("blogPosts") != null) {
             cacheManager.getCache("blogPosts").clear();
+            cachePrimer.requestPriming();
             return "Blog posts cache cleared successfully";
         } else {
             return "Blog posts cache not available";
@@ -41,6 +124,7 @@ public class CacheController {
     public String clearReviewsCache() {
         if (cacheManager != null && cacheManager.getCache("reviews") != null) {
             cacheManager.getCache("reviews").clear();
+            cachePrimer.requestPriming();
             return "Reviews cache cleared successfully";
         } else {
             return "Reviews cache not available";
@@ -51,6 +135,7 @@ public class CacheController {
     public String clearTagsCache() {
         if (cacheManager != null && cacheManager.getCache("tags") != null) {
             cacheManager.getCache("tags").clear();
+            cachePrimer.requestPriming();
             return "Tags cache cleared successfully";
         } else {
             return "Tags cache not available";
@@ -58,15 +143,17 @@ public class CacheController {
     }
     
     /**
-     * Reload all caches by clearing them (they will be repopulated on next access)
+     * Re-read content from disk and clear all caches; the hot entries are re-primed in the background
      */
     @PostMapping("/reload")
     public String reloadAllCaches() {
         try {
+            contentService.reloadContent();
             if (cacheManager != null) {
                 cacheManager.getCacheNames().forEach(name -> {
                     Objects.requireNonNull(cacheManager.getCache(name)).clear();
                 });
+                cachePrimer.requestPriming();
                 return "All caches reloaded successfully";
             } else {
                 return "Cache manager not available";
@@ -3,11 +3,16 @@ package com.pettrackerreview.controller;
 import com.pettrackerreview.model.BlogPost;
 import com.pettrackerreview.model.LocalizedContent;
 import com.pettrackerreview.model.Review;
+import com.pettrackerreview.service.ContentFilter;
+import com.pettrackerreview.service.ContentIndex;
+import com.pettrackerreview.service.ContentOrder;
+import com.pettrackerreview.service.ContentPage;
 import com.pettrackerreview.service.YamlContentService;
 import com.pettrackerreview.util.CssVersionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,8 +21,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
+import javax.servlet.http.HttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -35,26 +48,26 @@ public class HomeController {
     @Autowired
     private CssVersionUtil cssVersionUtil;
     
+    private static final int MAX_PAGE_SIZE = 48;
+    
+    // 评测列表的最低评分选项
+    private static final double[] RATING_FILTERS = {4.5, 4.0, 3.0};
+    
+    // 列表页每页条数
+    @Value("${app.listing.page-size:12}")
+    private int defaultPageSize;
+    
     @GetMapping("/")
     public String home(Model model, Locale locale) {
         // Get latest content for homepage
-        List<BlogPost> latestBlogs = contentService.getLatestBlogPosts(6);
-        List<Review> latestReviews = contentService.getLatestReviews(6);
-        Set<String> validTags = contentService.getValidTags();
-        
-        // Apply localization to blogs
+        // Localized views are built once per content change
         String language = locale != null ? locale.getLanguage() : "en";
-        List<BlogPost> localizedBlogs = latestBlogs.stream()
-                .map(blog -> getLocalizedBlogPost(blog, language))
-                .collect(Collectors.toList());
-        
-        // Apply localization to reviews
-        List<Review> localizedReviews = latestReviews.stream()
-                .map(review -> getLocalizedReview(review, language))
-                .collect(Collectors.toList());
+        List<BlogPost> latestBlogs = contentService.getHomepageBlogPosts(language, 6);
+        List<Review> latestReviews = contentService.getHomepageReviews(language, 6);
+        Set<String> validTags = contentService.getValidTags();
         
-        model.addAttribute("latestBlogs", localizedBlogs);
-        model.addAttribute("latestReviews", localizedReviews);
+        model.addAttribute("latestBlogs", latestBlogs);
+        model.addAttribute("latestReviews", latestReviews);
         model.addAttribute("allTags", validTags);
         model.addAttribute("pageTitle", "Pet Tracker Reviews - Best GPS Trackers for Dogs & Cats");
         model.addAttribute("metaDescription", "Find the best pet trackers and GPS collars for your dogs and cats. In-depth reviews, comparisons, and buying guides to keep your pets safe.");
@@ -64,38 +77,53 @@ public class HomeController {
     }
     
     @GetMapping("/blogs")
-    public String blogList(Model model, @RequestParam(required = false) String tag, Locale locale) {
-        List<BlogPost> blogPosts;
+    public String blogList(Model model, @RequestParam(required = false) List<String> tag,
+                           @RequestParam(defaultValue = "all") String match,
+                           @RequestParam(defaultValue = "1") int page,
+                           @RequestParam(required = false) Integer size,
+                           @RequestParam(required = false) String after,
+                           @RequestParam(required = false) String before,
+                           Locale locale, HttpServletRequest request) {
+        ContentPage<BlogPost> blogPage;
         String pageTitle;
         String metaDescription;
+        List<String> tags = selectedTags(tag);
+        boolean matchAll = !"any".equalsIgnoreCase(match);
+        String tagLabel = String.join(matchAll ? " + " : ", ", tags);
         
-        if (tag != null && !tag.trim().isEmpty()) {
-            blogPosts = contentService.getBlogPostsByTag(tag);
-            
+        // Localized view for the request language
+        String language = locale != null ? locale.getLanguage() : "en";
+        ContentFilter filter = ContentFilter.tags(tags, matchAll);
+        int pageSize = pageSize(size);
+        
+        blogPage = after != null ? contentService.getBlogPostsAfter(language, ContentOrder.DATE, filter, after, pageSize)
+                : before != null ? contentService.getBlogPostsBefore(language, ContentOrder.DATE, filter, before, pageSize)
+                : contentService.getBlogPostPage(language, ContentOrder.DATE, filter, page, pageSize);
+        
+        if (!tags.isEmpty()) {
             // 如果该标签在博客中没有匹配的内容，重定向到评测页面
-            if (blogPosts.isEmpty()) {
-                return "redirect:/reviews?tag=" + tag;
+            if (blogPage.getTotal() == 0) {
+                return "redirect:/reviews?" + tagQuery(tags, matchAll);
             }
             
-            pageTitle = "Pet Tracker Blog - " + tag + " Articles";
-            metaDescription = "Read our latest blog posts about " + tag + " and pet tracker technology.";
+            pageTitle = "Pet Tracker Blog - " + tagLabel + " Articles";
+            metaDescription = "Read our latest blog posts about " + tagLabel + " and pet tracker technology.";
         } else {
-            blogPosts = contentService.getAllBlogPosts();
             pageTitle = "Pet Tracker Blog - Latest Articles and Guides";
             metaDescription = "Stay updated with the latest pet tracker news, guides, and tips. Learn how to keep your pets safe with GPS technology.";
         }
         
-        // Apply localization to blogs
-        String language = locale != null ? locale.getLanguage() : "en";
-        List<BlogPost> localizedBlogs = blogPosts.stream()
-                .map(blog -> getLocalizedBlogPost(blog, language))
-                .collect(Collectors.toList());
-        
         Set<String> blogTags = contentService.getBlogTags(); // 使用博客标签
         
-        model.addAttribute("blogPosts", localizedBlogs);
+        model.addAttribute("blogPosts", blogPage.getItems());
+        // Filtered listings page by cursor, so deep pages do not count through the matches
+        addPagination(model, request, blogPage, after != null || before != null || !filter.isEmpty());
         model.addAttribute("allTags", blogTags); // 使用博客标签
-        model.addAttribute("selectedTag", tag);
+        // Filtered listings count each tag within the current matches
+        model.addAttribute("tagCounts", filter.isEmpty() ? contentService.getBlogTagCounts()
+                : contentService.getBlogTagCounts(filter));
+        model.addAttribute("selectedTag", tags.isEmpty() ? null : tagLabel);
+        model.addAttribute("selectedTags", tags);
         model.addAttribute("pageTitle", pageTitle);
         model.addAttribute("metaDescription", metaDescription);
         model.addAttribute("cssVersion", cssVersionUtil.getVersionParam());
@@ -128,21 +156,14 @@ public class HomeController {
                 if (localizedContent.getMetaDescription() != null && !localizedContent.getMetaDescription().isEmpty()) {
                     model.addAttribute("metaDescription", localizedContent.getMetaDescription());
                 }
-                if (localizedContent.getContent() != null && !localizedContent.getContent().isEmpty()) {
-                    model.addAttribute("blogPostContent", localizedContent.getContent());
+                if (localizedContent.getRenderedContent() != null && !localizedContent.getRenderedContent().isEmpty()) {
+                    model.addAttribute("blogPostContent", localizedContent.getRenderedContent());
                 }
             }
         }
         
-        // Get related posts by tags
-        List<BlogPost> relatedPosts = contentService.getAllBlogPosts()
-                .stream()
-                .filter(post -> !post.getSlug().equals(slug) && 
-                       post.getTags() != null && blogPost.getTags() != null &&
-                       post.getTags().stream().anyMatch(tag -> blogPost.getTags().contains(tag)))
-                .limit(3)
-                .map(post -> getLocalizedBlogPost(post, languageToUse)) // Apply localization to related posts
-                .collect(java.util.stream.Collectors.toList());
+        // Get related posts (precomputed from tags and recency)
+        List<BlogPost> relatedPosts = contentService.getBlogPostView(languageToUse).related(blogPost.getSlug(), 3);
         
         model.addAttribute("blogPost", blogPost);
         model.addAttribute("relatedPosts", relatedPosts);
@@ -161,32 +182,55 @@ public class HomeController {
     }
     
     @GetMapping("/reviews")
-    public String reviewsList(Model model, @RequestParam(required = false) String tag, Locale locale) {
-        List<Review> reviews;
+    public String reviewsList(Model model, @RequestParam(required = false) List<String> tag,
+                              @RequestParam(defaultValue = "all") String match,
+                              @RequestParam(defaultValue = "1") int page,
+                              @RequestParam(required = false) Integer size,
+                              @RequestParam(required = false) String after,
+                              @RequestParam(required = false) String before,
+                              @RequestParam(required = false) String sort,
+                              @RequestParam(required = false) String brand,
+                              @RequestParam(required = false) Double minRating,
+                              Locale locale, HttpServletRequest request) {
+        ContentPage<Review> reviewPage;
         String pageTitle;
         String metaDescription;
+        List<String> tags = selectedTags(tag);
+        boolean matchAll = !"any".equalsIgnoreCase(match);
+        String tagLabel = String.join(matchAll ? " + " : ", ", tags);
+        
+        // Localized view for the request language
+        String language = locale != null ? locale.getLanguage() : "en";
+        ContentIndex<Review> reviewView = contentService.getReviewView(language);
+        ContentOrder order = ContentOrder.parse(sort, ContentOrder.DATE);
+        ContentFilter filter = ContentFilter.tags(tags, matchAll).withBrand(brand).withMinRating(minRating);
         
-        if (tag != null && !tag.trim().isEmpty()) {
-            reviews = contentService.getReviewsByTag(tag);
-            pageTitle = "Pet Tracker Reviews - " + tag + " Products";
-            metaDescription = "Read our detailed reviews of " + tag + " pet trackers and GPS collars.";
+        int pageSize = pageSize(size);
+        
+        reviewPage = after != null ? contentService.getReviewsAfter(language, order, filter, after, pageSize)
+                : before != null ? contentService.getReviewsBefore(language, order, filter, before, pageSize)
+                : contentService.getReviewPage(language, order, filter, page, pageSize);
+        
+        if (!tags.isEmpty() || filter.getBrand() != null) {
+            String label = tags.isEmpty() ? filter.getBrand()
+                    : filter.getBrand() == null ? tagLabel : filter.getBrand() + " " + tagLabel;
+            pageTitle = "Pet Tracker Reviews - " + label + " Products";
+            metaDescription = "Read our detailed reviews of " + label + " pet trackers and GPS collars.";
         } else {
-            reviews = contentService.getAllReviews();
             pageTitle = "Pet Tracker Reviews - Detailed Product Analysis";
             metaDescription = "Comprehensive reviews of the best pet trackers and GPS collars. Find the perfect tracking device for your dog or cat.";
         }
         
-        // Apply localization to reviews
-        String language = locale != null ? locale.getLanguage() : "en";
-        List<Review> localizedReviews = reviews.stream()
-                .map(review -> getLocalizedReview(review, language))
-                .collect(Collectors.toList());
-        
         Set<String> reviewTags = contentService.getReviewTags(); // 使用评测标签
         
-        model.addAttribute("reviews", localizedReviews);
+        model.addAttribute("reviews", reviewPage.getItems());
+        addPagination(model, request, reviewPage, after != null || before != null || !filter.isEmpty());
         model.addAttribute("allTags", reviewTags); // 使用评测标签
-        model.addAttribute("selectedTag", tag);
+        model.addAttribute("tagCounts", filter.isEmpty() ? contentService.getReviewTagCounts()
+                : contentService.getReviewTagCounts(filter));
+        model.addAttribute("selectedTag", tags.isEmpty() ? null : tagLabel);
+        model.addAttribute("selectedTags", tags);
+        addReviewFilters(model, request, reviewView, order, filter);
         model.addAttribute("pageTitle", pageTitle);
         model.addAttribute("metaDescription", metaDescription);
         model.addAttribute("cssVersion", cssVersionUtil.getVersionParam());
@@ -219,8 +263,8 @@ public class HomeController {
                 if (localizedContent.getMetaDescription() != null && !localizedContent.getMetaDescription().isEmpty()) {
                     model.addAttribute("metaDescription", localizedContent.getMetaDescription());
                 }
-                if (localizedContent.getContent() != null && !localizedContent.getContent().isEmpty()) {
-                    model.addAttribute("reviewContent", localizedContent.getContent());
+                if (localizedContent.getRenderedContent() != null && !localizedContent.getRenderedContent().isEmpty()) {
+                    model.addAttribute("reviewContent", localizedContent.getRenderedContent());
                 }
                 if (localizedContent.getPros() != null && !localizedContent.getPros().isEmpty()) {
                     model.addAttribute("reviewPros", localizedContent.getPros());
@@ -234,16 +278,8 @@ public class HomeController {
             }
         }
         
-        // Get related reviews by tags or brand
-        List<Review> relatedReviews = contentService.getAllReviews()
-                .stream()
-                .filter(r -> !r.getSlug().equals(slug) && 
-                       (r.getProductBrand() != null && r.getProductBrand().equals(review.getProductBrand()) ||
-                        (r.getTags() != null && review.getTags() != null &&
-                         r.getTags().stream().anyMatch(tag -> review.getTags().contains(tag)))))
-                .limit(3)
-                .map(r -> getLocalizedReview(r, languageToUse)) // Apply localization to related reviews
-                .collect(java.util.stream.Collectors.toList());
+        // Get related reviews (precomputed from tags, brand and recency)
+        List<Review> relatedReviews = contentService.getReviewView(languageToUse).related(review.getSlug(), 3);
         
         model.addAttribute("review", review);
         model.addAttribute("relatedReviews", relatedReviews);
@@ -276,11 +312,11 @@ public class HomeController {
         
         String query = q.toLowerCase().trim();
         
-        // Simple search implementation
+        // Bodies are matched through the terms indexed at load time, never read here
         List<BlogPost> blogResults = contentService.getAllBlogPosts()
                 .stream()
                 .filter(post -> post.getTitle().toLowerCase().contains(query) ||
-                               post.getContent().toLowerCase().contains(query) ||
+                               post.getSummary().matches(query) ||
                                (post.getTags() != null && post.getTags().stream()
                                        .anyMatch(tag -> tag.toLowerCase().contains(query))))
                 .collect(java.util.stream.Collectors.toList());
@@ -288,7 +324,7 @@ public class HomeController {
         List<Review> reviewResults = contentService.getAllReviews()
                 .stream()
                 .filter(review -> review.getTitle().toLowerCase().contains(query) ||
-                                 review.getContent().toLowerCase().contains(query) ||
+                                 review.getSummary().matches(query) ||
                                  review.getProductName().toLowerCase().contains(query) ||
                                  review.getProductBrand().toLowerCase().contains(query) ||
                                  (review.getTags() != null && review.getTags().stream()
@@ -380,70 +416,106 @@ public class HomeController {
         return email != null && email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
     }
     
+    private int pageSize(Integer size) {
+        return size != null ? Math.min(Math.max(size, 1), MAX_PAGE_SIZE) : defaultPageSize;
+    }
+    
     /**
-     * Get localized version of a blog post
+     * Page info plus prev/next URLs (used for rel="prev"/"next" and the pager).
+     * Keyset requests link to cursors, offset requests to page numbers.
      */
-    private BlogPost getLocalizedBlogPost(BlogPost blogPost, String language) {
-        if (blogPost.getLocalizedContent() != null) {
-            LocalizedContent localizedContent = blogPost.getLocalizedContent().get(language);
-            if (localizedContent != null) {
-                // Create a copy of the blog post with localized content
-                BlogPost localizedBlogPost = new BlogPost();
-                localizedBlogPost.setTitle(localizedContent.getTitle() != null && !localizedContent.getTitle().isEmpty() ? 
-                        localizedContent.getTitle() : blogPost.getTitle());
-                localizedBlogPost.setAuthor(blogPost.getAuthor());
-                localizedBlogPost.setDate(blogPost.getDate());
-                localizedBlogPost.setTags(blogPost.getTags());
-                localizedBlogPost.setMetaDescription(localizedContent.getMetaDescription() != null && !localizedContent.getMetaDescription().isEmpty() ? 
-                        localizedContent.getMetaDescription() : blogPost.getMetaDescription());
-                localizedBlogPost.setMetaTitle(localizedContent.getMetaTitle() != null && !localizedContent.getMetaTitle().isEmpty() ? 
-                        localizedContent.getMetaTitle() : blogPost.getMetaTitle());
-                localizedBlogPost.setContent(localizedContent.getContent() != null && !localizedContent.getContent().isEmpty() ? 
-                        localizedContent.getContent() : blogPost.getContent());
-                localizedBlogPost.setSlug(blogPost.getSlug());
-                localizedBlogPost.setSortOrder(blogPost.getSortOrder());
-                localizedBlogPost.setLocalizedContent(blogPost.getLocalizedContent());
-                return localizedBlogPost;
+    private void addPagination(Model model, HttpServletRequest request, ContentPage<?> page, boolean keyset) {
+        String prevUrl = null;
+        String nextUrl = null;
+        if (keyset) {
+            if (page.getPreviousCursor() != null) {
+                prevUrl = pageUrl(request, "before", page.getPreviousCursor());
+            }
+            if (page.getNextCursor() != null) {
+                nextUrl = pageUrl(request, "after", page.getNextCursor());
+            }
+        } else {
+            if (page.hasPrevious()) {
+                // Page 1 is the plain URL
+                prevUrl = pageUrl(request, "page", page.getPage() > 2 ? page.getPage() - 1 : null);
+            }
+            if (page.hasNext()) {
+                nextUrl = pageUrl(request, "page", page.getPage() + 1);
             }
         }
-        return blogPost;
+        model.addAttribute("pagination", page);
+        model.addAttribute("prevUrl", prevUrl);
+        model.addAttribute("nextUrl", nextUrl);
     }
     
     /**
-     * Get localized version of a review
+     * Sort, brand and minimum rating links for the review sidebar; each keeps the
+     * other filters and starts again from the first page
      */
-    private Review getLocalizedReview(Review review, String language) {
-        if (review.getLocalizedContent() != null) {
-            LocalizedContent localizedContent = review.getLocalizedContent().get(language);
-            if (localizedContent != null) {
-                // Create a copy of the review with localized content
-                Review localizedReview = new Review();
-                localizedReview.setTitle(localizedContent.getTitle() != null && !localizedContent.getTitle().isEmpty() ? 
-                        localizedContent.getTitle() : review.getTitle());
-                localizedReview.setAuthor(review.getAuthor());
-                localizedReview.setDate(review.getDate());
-                localizedReview.setTags(review.getTags());
-                localizedReview.setMetaDescription(localizedContent.getMetaDescription() != null && !localizedContent.getMetaDescription().isEmpty() ? 
-                        localizedContent.getMetaDescription() : review.getMetaDescription());
-                localizedReview.setMetaTitle(localizedContent.getMetaTitle() != null && !localizedContent.getMetaTitle().isEmpty() ? 
-                        localizedContent.getMetaTitle() : review.getMetaTitle());
-                localizedReview.setContent(localizedContent.getContent() != null && !localizedContent.getContent().isEmpty() ? 
-                        localizedContent.getContent() : review.getContent());
-                localizedReview.setSlug(review.getSlug());
-                localizedReview.setProductName(review.getProductName());
-                localizedReview.setProductBrand(review.getProductBrand());
-                localizedReview.setRating(review.getRating());
-                localizedReview.setPros(localizedContent.getPros() != null && !localizedContent.getPros().isEmpty() ? 
-                        localizedContent.getPros() : review.getPros());
-                localizedReview.setCons(localizedContent.getCons() != null && !localizedContent.getCons().isEmpty() ? 
-                        localizedContent.getCons() : review.getCons());
-                localizedReview.setConclusion(localizedContent.getConclusion() != null && !localizedContent.getConclusion().isEmpty() ? 
-                        localizedContent.getConclusion() : review.getConclusion());
-                localizedReview.setSortOrder(review.getSortOrder());
-                localizedReview.setLocalizedContent(review.getLocalizedContent());
-                return localizedReview;
-            }
+    private void addReviewFilters(Model model, HttpServletRequest request, ContentIndex<Review> reviewView,
+                                  ContentOrder order, ContentFilter filter) {
+        Map<ContentOrder, String> sortUrls = new LinkedHashMap<>();
+        for (ContentOrder o : ContentOrder.values()) {
+            sortUrls.put(o, pageUrl(request, "sort", o == ContentOrder.DATE ? null : o.getParam()));
+        }
+        Map<String, String> brandUrls = new LinkedHashMap<>();
+        reviewView.brandCounts().keySet().forEach(b -> brandUrls.put(b, pageUrl(request, "brand", b)));
+        Map<Double, String> ratingUrls = new LinkedHashMap<>();
+        for (double rating : RATING_FILTERS) {
+            ratingUrls.put(rating, pageUrl(request, "minRating", rating));
+        }
+        
+        model.addAttribute("selectedSort", order);
+        model.addAttribute("sortUrls", sortUrls);
+        model.addAttribute("selectedBrand", filter.getBrand());
+        model.addAttribute("brandCounts", reviewView.brandCounts());
+        model.addAttribute("brandUrls", brandUrls);
+        model.addAttribute("allBrandsUrl", pageUrl(request, "brand", null));
+        model.addAttribute("minRating", filter.getMinRating());
+        model.addAttribute("ratingUrls", ratingUrls);
+        model.addAttribute("anyRatingUrl", pageUrl(request, "minRating", null));
+    }
+    
+    /**
+     * The current URL with one query parameter set (or removed if value is null)
+     * and the paging parameters dropped. The rest of the query is kept as the
+     * client encoded it; the new value is encoded here, so brands like
+     * "Tractive & Co" stay one parameter.
+     */
+    static String pageUrl(HttpServletRequest request, String param, Object value) {
+        UriComponentsBuilder builder = ServletUriComponentsBuilder.fromRequest(request)
+                .replaceQueryParam("page")
+                .replaceQueryParam("after")
+                .replaceQueryParam("before");
+        if (value != null) {
+            // '+' is legal in a query but decodes as a space
+            builder.replaceQueryParam(param,
+                    UriUtils.encodeQueryParam(value.toString(), StandardCharsets.UTF_8).replace("+", "%2B"));
+        } else {
+            builder.replaceQueryParam(param);
+        }
+        return builder.build().toUriString();
+    }
+    
+    /**
+     * Distinct, non-blank ?tag= values in request order
+     */
+    private List<String> selectedTags(List<String> tag) {
+        if (tag == null) {
+            return Collections.emptyList();
+        }
+        return tag.stream()
+                .filter(t -> t != null && !t.trim().isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+    
+    private String tagQuery(List<String> tags, boolean matchAll) {
+        UriComponentsBuilder builder = UriComponentsBuilder.newInstance();
+        tags.forEach(t -> builder.queryParam("tag", t));
+        if (!matchAll) {
+            builder.queryParam("match", "any");
         }
-        return review;
+        return builder.build().encode().getQuery();
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.pettrackerreview.model;
+
+/**
+ * Supplies article bodies that are not kept in memory with the rest of a
+ * blog post or review. Bodies are loaded on first access, e.g. when a detail
+ * page renders them.
+ */
+public interface ContentBodySource {
+
+    /**
+     * Main HTML body, as written
+     */
+    String getContent();
+
+    /**
+     * HTML body of the localized variant as written, or null if it has none
+     */
+    String getLocalizedContent(String language);
+
+    /**
+     * Main HTML body as the public pages render it
+     */
+    String getRenderedContent();
+
+    /**
+     * HTML body of the localized variant as the public pages render it, or null if it has none
+     */
+    String getRenderedLocalizedContent(String language);
+}
@@ -0,0 +1,55 @@
+package com.pettrackerreview.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fields shared by blog posts and reviews, used by the in-memory content indexes
+ */
+public interface ContentItem {
+
+    String getTitle();
+
+    String getMetaTitle();
+
+    String getMetaDescription();
+
+    String getSlug();
+
+    void setSlug(String slug);
+
+    String generateSlug();
+
+    LocalDateTime getDate();
+
+    /**
+     * When the item goes offline, or null if it stays online
+     */
+    LocalDateTime getUnpublishDate();
+
+    List<String> getTags();
+
+    int getSortOrder();
+
+    String getContent();
+
+    void setContent(String content);
+
+    /**
+     * Body for the public pages, with images rewritten
+     */
+    String getRenderedContent();
+
+    Map<String, LocalizedContent> getLocalizedContent();
+
+    ContentBodySource getBodySource();
+
+    void setBodySource(ContentBodySource bodySource);
+
+    ContentSummary getSummary();
+
+    void setSummary(ContentSummary summary);
+
+    boolean isShowOnHomepage();
+}
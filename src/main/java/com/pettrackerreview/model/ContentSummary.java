@@ -0,0 +1,74 @@
+package com.pettrackerreview.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.regex.Pattern;
+
+/**
+ * Plain-text facts about an article body, derived once when the content is loaded
+ * so list and detail pages never strip HTML per request
+ */
+public final class ContentSummary {
+
+    /**
+     * Characters that separate the words kept in {@link #getTerms()}
+     */
+    public static final Pattern TERM_SEPARATOR = Pattern.compile("[\\s.,;:!?()\\[\\]\"']+");
+
+    public static final ContentSummary EMPTY = new ContentSummary("", 0, 0, "");
+
+    private final String excerpt;
+    private final int wordCount;
+    private final int readingMinutes;
+    private final String terms;
+
+    @JsonCreator
+    public ContentSummary(@JsonProperty("excerpt") String excerpt,
+                          @JsonProperty("wordCount") int wordCount,
+                          @JsonProperty("readingMinutes") int readingMinutes,
+                          @JsonProperty("terms") String terms) {
+        this.excerpt = excerpt != null ? excerpt : "";
+        this.wordCount = wordCount;
+        this.readingMinutes = readingMinutes;
+        this.terms = terms != null ? terms : "";
+    }
+
+    /**
+     * Start of the body as plain text, cut at a word boundary
+     */
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    /**
+     * Distinct lower-case words of the body, space separated, for site search
+     */
+    public String getTerms() {
+        return terms;
+    }
+
+    /**
+     * True when every word of the lower-case query occurs in the body's terms
+     */
+    public boolean matches(String query) {
+        for (String word : TERM_SEPARATOR.split(query)) {
+            if (!word.isEmpty() && !terms.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public int getReadingMinutes() {
+        return readingMinutes;
+    }
+
+    public boolean isEmpty() {
+        return wordCount == 0;
+    }
+}
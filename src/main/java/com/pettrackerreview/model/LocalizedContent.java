@@ -1,5 +1,7 @@
 package com.pettrackerreview.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class LocalizedContent {
     private String title;
     private String metaDescription;
@@ -9,6 +11,14 @@ public class LocalizedContent {
     private String cons; // For reviews only
     private String conclusion; // For reviews only
     
+    // Loads the body on demand when it is not held in memory
+    @JsonIgnore
+    private ContentBodySource bodySource;
+    @JsonIgnore
+    private String language;
+    // Plain-text summary of the body, derived when loaded
+    private ContentSummary summary;
+    
     // Constructors
     public LocalizedContent() {}
     
@@ -55,6 +65,9 @@ public class LocalizedContent {
     }
     
     public String getContent() {
+        if (content == null && bodySource != null) {
+            return bodySource.getLocalizedContent(language);
+        }
         return content;
     }
     
@@ -62,6 +75,17 @@ public class LocalizedContent {
         this.content = content;
     }
     
+    /**
+     * Body as the public pages render it, images rewritten; {@link #getContent()} is the body as written
+     */
+    @JsonIgnore
+    public String getRenderedContent() {
+        if (content == null && bodySource != null) {
+            return bodySource.getRenderedLocalizedContent(language);
+        }
+        return content;
+    }
+    
     public String getPros() {
         return pros;
     }
@@ -86,6 +110,28 @@ public class LocalizedContent {
         this.conclusion = conclusion;
     }
     
+    /**
+     * Load the body of this variant from the given source instead of holding it
+     */
+    @JsonIgnore
+    public void setBodySource(ContentBodySource bodySource, String language) {
+        this.bodySource = bodySource;
+        this.language = language;
+    }
+    
+    /**
+     * Excerpt, word count and reading time of the body; derived, never written to YAML
+     */
+    @JsonIgnore
+    public ContentSummary getSummary() {
+        return summary;
+    }
+    
+    @JsonIgnore
+    public void setSummary(ContentSummary summary) {
+        this.summary = summary;
+    }
+    
     @Override
     public String toString() {
         return "LocalizedContent{" +
@@ -2,19 +2,29 @@ package com.pettrackerreview.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
-public class Review {
+public class Review implements ContentItem {
     private String title;
     private String author;
     
+    // Not served before this time; the admin form posts it as datetime-local
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm", fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime date;
     
+    // Taken offline at this time; null keeps it online
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm", fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime unpublishDate;
+    
     private List<String> tags;
     
     @JsonProperty("metaDescription")
@@ -40,6 +50,12 @@ public class Review {
     // Multilingual content support
     private Map<String, LocalizedContent> localizedContent;
     
+    // Loads the body on demand when it is not held in memory
+    @JsonIgnore
+    private ContentBodySource bodySource;
+    
+    private ContentSummary summary;
+    
     // Constructors
     public Review() {}
     
@@ -89,6 +105,14 @@ public class Review {
         this.date = date;
     }
     
+    public LocalDateTime getUnpublishDate() {
+        return unpublishDate;
+    }
+    
+    public void setUnpublishDate(LocalDateTime unpublishDate) {
+        this.unpublishDate = unpublishDate;
+    }
+    
     public List<String> getTags() {
         return tags;
     }
@@ -114,6 +138,9 @@ public class Review {
     }
     
     public String getContent() {
+        if (content == null && bodySource != null) {
+            return bodySource.getContent();
+        }
         return content;
     }
     
@@ -121,6 +148,17 @@ public class Review {
         this.content = content;
     }
     
+    /**
+     * Body as the public pages render it, images rewritten; {@link #getContent()} is the body as written
+     */
+    @JsonIgnore
+    public String getRenderedContent() {
+        if (content == null && bodySource != null) {
+            return bodySource.getRenderedContent();
+        }
+        return content;
+    }
+    
     public String getSlug() {
         return slug;
     }
@@ -195,6 +233,29 @@ public class Review {
         this.localizedContent = localizedContent;
     }
     
+    @JsonIgnore
+    public ContentBodySource getBodySource() {
+        return bodySource;
+    }
+    
+    @JsonIgnore
+    public void setBodySource(ContentBodySource bodySource) {
+        this.bodySource = bodySource;
+    }
+    
+    /**
+     * Excerpt, word count and reading time of the body; derived, never written to YAML
+     */
+    @JsonIgnore
+    public ContentSummary getSummary() {
+        return summary;
+    }
+    
+    @JsonIgnore
+    public void setSummary(ContentSummary summary) {
+        this.summary = summary;
+    }
+    
     // Helper method to check if review should be displayed on homepage
     public boolean isShowOnHomepage() {
         return sortOrder > 0;
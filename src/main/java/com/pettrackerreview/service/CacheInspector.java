@@ -0,0 +1,187 @@
+package com.pettrackerreview.service;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.pettrackerreview.config.CacheConfig;
+import com.pettrackerreview.model.ContentItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only view of what the Caffeine caches hold, plus eviction by key
+ * pattern, for the cache management API. Nothing here counts as a hit in the
+ * cache statistics.
+ * <p>
+ * The size of an entry is given in the cache's own weight (items for lists,
+ * 1 otherwise) and as the approximate bytes of the bodies and strings it
+ * references. Cached items are the instances of the published snapshot, so
+ * those bytes are shared with it, not freed when the entry is evicted.
+ */
+@Service
+public class CacheInspector {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ContentBodyStore bodyStore;
+
+    /**
+     * Size, hit ratio, loads and evictions of every cache, and the hit ratio over all of them
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> caches = new LinkedHashMap<>();
+        long hits = 0;
+        long misses = 0;
+        for (String name : cacheManager.getCacheNames()) {
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = nativeCache(cacheManager.getCache(name));
+            if (nativeCache == null) {
+                continue;
+            }
+            CacheStats stats = nativeCache.stats();
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("size", nativeCache.estimatedSize());
+            nativeCache.policy().eviction().ifPresent(eviction -> {
+                eviction.weightedSize().ifPresent(weight -> info.put("weight", weight));
+                info.put("maxWeight", eviction.getMaximum());
+            });
+            info.put("hits", stats.hitCount());
+            info.put("misses", stats.missCount());
+            info.put("hitRatio", stats.hitRate());
+            info.put("loads", stats.loadCount());
+            info.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+            info.put("evictions", stats.evictionCount());
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CacheConfig.RefreshAheadCache) {
+                info.put("staleServed", ((CacheConfig.RefreshAheadCache) cache).getStaleServed());
+                info.put("refreshes", ((CacheConfig.RefreshAheadCache) cache).getRefreshes());
+            }
+            caches.put(name, info);
+            hits += stats.hitCount();
+            misses += stats.missCount();
+        }
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("hits", hits);
+        total.put("misses", misses);
+        total.put("hitRatio", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("caches", caches);
+        result.put("total", total);
+        return result;
+    }
+
+    /**
+     * Entries of a cache, most hit first
+     * @param limit most entries to return
+     * @return null if there is no such cache
+     */
+    public List<Map<String, Object>> getEntries(String cacheName, int limit) {
+        Cache cache = cacheManager.getCache(cacheName);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = nativeCache(cache);
+        if (nativeCache == null) {
+            return null;
+        }
+        CacheConfig.RefreshAheadCache refreshing = cache instanceof CacheConfig.RefreshAheadCache
+                ? (CacheConfig.RefreshAheadCache) cache : null;
+        Policy.Eviction<Object, Object> eviction = nativeCache.policy().eviction().orElse(null);
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map.Entry<Object, Object> cached : nativeCache.asMap().entrySet()) {
+            Object key = cached.getKey();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", key.toString());
+            if (eviction != null) {
+                OptionalInt weight = eviction.weightOf(key);
+                if (weight.isPresent()) {
+                    entry.put("weight", weight.getAsInt());
+                }
+            }
+            entry.put("referencedBytes", approximateBytes(cached.getValue()));
+            if (refreshing != null) {
+                OptionalLong age = refreshing.getAge(key, TimeUnit.SECONDS);
+                if (age.isPresent()) {
+                    entry.put("ageSeconds", age.getAsLong());
+                }
+                CacheConfig.EntryStats stats = refreshing.getEntryStats(key);
+                entry.put("hits", stats != null ? stats.getHits() : 0L);
+                entry.put("lastAccess", stats != null ? Instant.ofEpochMilli(stats.getLastAccess()).toString() : null);
+            }
+            entries.add(entry);
+        }
+        entries.sort(Comparator.comparingLong((Map<String, Object> entry) ->
+                entry.get("hits") instanceof Long ? (Long) entry.get("hits") : 0L).reversed());
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, Math.max(limit, 0))) : entries;
+    }
+
+    /**
+     * Evict the entries whose key matches the regular expression
+     * @return the evicted keys, or null if there is no such cache
+     */
+    public List<String> evictMatching(String cacheName, Pattern pattern) {
+        Cache cache = cacheManager.getCache(cacheName);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = nativeCache(cache);
+        if (nativeCache == null) {
+            return null;
+        }
+        List<String> evicted = new ArrayList<>();
+        for (Object key : new ArrayList<>(nativeCache.asMap().keySet())) {
+            if (pattern.matcher(key.toString()).matches()) {
+                cache.evict(key);
+                evicted.add(key.toString());
+            }
+        }
+        Collections.sort(evicted);
+        return evicted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(Cache cache) {
+        return cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache
+                ? (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache()
+                : null;
+    }
+
+    /**
+     * Bodies of referenced items as stored, and two bytes per char of strings
+     */
+    private long approximateBytes(Object value) {
+        if (value instanceof ContentItem) {
+            return bodyStore.measure(Collections.singletonList((ContentItem) value)).get("storedBytes");
+        }
+        if (value instanceof ContentPage) {
+            return approximateBytes(((ContentPage<?>) value).getItems());
+        }
+        if (value instanceof Map) {
+            return approximateBytes(((Map<?, ?>) value).keySet());
+        }
+        if (value instanceof Collection) {
+            List<ContentItem> items = new ArrayList<>();
+            long bytes = 0;
+            for (Object element : (Collection<?>) value) {
+                if (element instanceof ContentItem) {
+                    items.add((ContentItem) element);
+                } else if (element instanceof String) {
+                    bytes += 2L * ((String) element).length();
+                }
+            }
+            return bytes + (items.isEmpty() ? 0 : bodyStore.measure(items).get("storedBytes"));
+        }
+        return value instanceof String ? 2L * ((String) value).length() : 0;
+    }
+}
@@ -0,0 +1,207 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.config.CacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-primes the most requested cache entries after they were invalidated, so
+ * the first visitor after an admin save, an import or a cache clear (often a
+ * crawler) does not pay for the rebuild.
+ * <p>
+ * The content caches report every lookup here, and request counts are halved
+ * periodically so "hot" follows recent traffic. Content changes (through the
+ * event bus) and cache clears request a priming run. After a short delay, so
+ * that a burst of changes primes once, the hottest entries that are no longer
+ * cached are loaded again on a minimum-priority thread. They are computed
+ * from their keys by {@link YamlContentService#loadCacheEntry}, like the
+ * entries the public pages read (homepage selections, listing pages, detail
+ * items, tags and tag counts). Each value is put into the cache only when it
+ * is complete. Runs are timed as cache.priming.duration, and the
+ * entries they load are counted as cache.priming.entries.
+ */
+@Service
+public class CachePrimer implements ContentEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachePrimer.class);
+
+    private static final List<String> PRIMED_CACHES = Arrays.asList("blogPosts", "reviews", "tags");
+    private static final long DECAY_INTERVAL_MINUTES = 10;
+
+    // 每次预热的最热缓存条目数
+    @Value("${app.cache.priming.top-keys:50}")
+    private int topKeys;
+
+    // 内容变更后等待多久再预热，合并连续的变更
+    @Value("${app.cache.priming.delay:1s}")
+    private Duration delay;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private YamlContentService contentService;
+
+    @Autowired
+    private ContentEventBus eventBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<ContentCacheDependencies.Entry, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Thread primingThread;
+    private ScheduledExecutorService executor;
+    private Timer duration;
+    private Counter primedEntries;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-primer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            primingThread = thread;
+            return thread;
+        });
+        duration = Timer.builder("cache.priming.duration")
+                .description("Time taken to re-prime hot cache entries after an invalidation")
+                .register(meterRegistry);
+        primedEntries = Counter.builder("cache.priming.entries")
+                .description("Cache entries loaded by priming")
+                .register(meterRegistry);
+        for (String name : PRIMED_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CacheConfig.RefreshAheadCache) {
+                ((CacheConfig.RefreshAheadCache) cache).setAccessListener(key -> accessed(name, key));
+            }
+        }
+        executor.scheduleWithFixedDelay(this::decay, DECAY_INTERVAL_MINUTES, DECAY_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        eventBus.subscribe("cache-primer", this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void onEvent(ContentEvent event) {
+        requestPriming();
+    }
+
+    @Override
+    public void resync() {
+        requestPriming();
+    }
+
+    /**
+     * Prime the hot entries after the delay, unless a run is already waiting
+     */
+    public void requestPriming() {
+        if (pending.compareAndSet(false, true)) {
+            executor.schedule(this::prime, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void accessed(String cacheName, Object key) {
+        if (Thread.currentThread() == primingThread) {
+            return;
+        }
+        ContentCacheDependencies.Entry entry = new ContentCacheDependencies.Entry(cacheName, key);
+        AtomicLong count = requests.get(entry);
+        if (count == null) {
+            // New keys get in once decay has made room
+            if (requests.size() >= maxTracked()) {
+                return;
+            }
+            count = requests.computeIfAbsent(entry, e -> new AtomicLong());
+        }
+        count.incrementAndGet();
+    }
+
+    private void prime() {
+        // Changes from here on need another run
+        pending.set(false);
+        long start = System.nanoTime();
+        int primed = 0;
+        for (ContentCacheDependencies.Entry entry : hottest()) {
+            Cache cache = cacheManager.getCache(entry.getCacheName());
+            if (cache == null || ContentCacheDependencies.isCached(cache, entry.getKey())) {
+                continue;
+            }
+            try {
+                if (load(cache, entry.getKey())) {
+                    primed++;
+                } else {
+                    // Its item or tag is gone
+                    requests.remove(entry);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not prime {}: {}", entry, e.getMessage());
+            }
+        }
+        if (primed > 0) {
+            long nanos = System.nanoTime() - start;
+            duration.record(nanos, TimeUnit.NANOSECONDS);
+            primedEntries.increment(primed);
+            logger.info("Primed {} hot cache entries in {} ms", primed, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private List<ContentCacheDependencies.Entry> hottest() {
+        // Copy the counts first; they keep changing while this sorts
+        List<Map.Entry<ContentCacheDependencies.Entry, Long>> counted = new ArrayList<>(requests.size());
+        requests.forEach((entry, count) -> counted.add(new AbstractMap.SimpleImmutableEntry<>(entry, count.get())));
+        counted.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        List<ContentCacheDependencies.Entry> hottest = new ArrayList<>(Math.min(topKeys, counted.size()));
+        for (int i = 0; i < counted.size() && i < topKeys; i++) {
+            hottest.add(counted.get(i).getKey());
+        }
+        return hottest;
+    }
+
+    private void decay() {
+        requests.entrySet().removeIf(entry -> entry.getValue().updateAndGet(count -> count / 2) == 0);
+    }
+
+    private int maxTracked() {
+        return Math.max(topKeys * 20, 1000);
+    }
+
+    /**
+     * Compute one entry from its key and put it, unless a request cached it meanwhile
+     * @return false if the key's item or tag no longer exists
+     */
+    private boolean load(Cache cache, Object key) {
+        Object value = contentService.loadCacheEntry(cache.getName(), key.toString());
+        if (value == null) {
+            return false;
+        }
+        cache.putIfAbsent(key, value);
+        return true;
+    }
+}
@@ -0,0 +1,451 @@
+package com.pettrackerreview.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.pettrackerreview.model.ContentBodySource;
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.model.LocalizedContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps article bodies out of the resident content. When lazy bodies are enabled,
+ * loaded items only carry listing fields; the HTML body and localized bodies are
+ * read back from the source file on first access and held in a bounded LRU cache.
+ * With compression on, bodies held here (cached or, without lazy bodies, resident)
+ * are stored as compressed UTF-8 and decoded only when they are rendered.
+ * <p>
+ * Bodies are held as written, which is what the admin editors and the YAML
+ * serialization see. The public pages render them through
+ * {@link ContentImageRewriter}; the rewritten form is made once on the way in
+ * and held next to the body, only for bodies the rewrite changed.
+ * <p>
+ * A lazy body is read back only if the document still has the hash the item
+ * was parsed from. A document that changed in between (e.g. an rsync deploy the
+ * watcher has not applied yet) is handed to the stale listener to be reloaded,
+ * and its bodies are cached under the new hash for the reloaded item.
+ */
+@Component
+public class ContentBodyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentBodyStore.class);
+
+    static final String CONTENT_FIELD = "content";
+    static final String LOCALIZED_FIELD = "localizedContent";
+
+    private final YAMLFactory yamlFactory = new YAMLFactory();
+
+    @Autowired
+    private ContentImageRewriter imageRewriter;
+
+    @Autowired
+    private ContentRepository repository;
+
+    @Value("${app.content.lazy-bodies:true}")
+    private boolean lazy;
+
+    @Value("${app.content.body-cache.max-entries:200}")
+    private int maxEntries;
+
+    @Value("${app.content.compress-bodies:true}")
+    private boolean compress;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleReads = new AtomicLong();
+
+    private volatile Consumer<File> staleListener = file -> { };
+
+    // Stored size of the cached bodies; guarded by cache
+    private long cachedBytes;
+
+    private final Map<String, Bodies> cache = new LinkedHashMap<String, Bodies>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bodies> eldest) {
+            if (size() > maxEntries) {
+                cachedBytes -= eldest.getValue().storedBytes;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * True if items should be loaded without their bodies
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Drop the bodies held by the item and load them from its source file on demand.
+     * Bodies the item already holds (e.g. right after a save) are kept in the cache.
+     */
+    public void attach(ContentItem item, File file, String hash) {
+        ContentBodySource source;
+        if (lazy) {
+            FileBodySource fileSource = new FileBodySource(file, hash);
+            if (item.getContent() != null) {
+                put(fileSource.key, bodies(item.getContent(), localizedBodies(item)));
+            }
+            source = fileSource;
+        } else {
+            if (item.getContent() == null && item.getBodySource() == null) {
+                return;
+            }
+            // The item keeps the only reference, so replaced items free their bodies
+            source = new ResidentBodySource(bodies(item.getContent(), localizedBodies(item)));
+        }
+
+        item.setContent(null);
+        item.setBodySource(source);
+        if (item.getLocalizedContent() != null) {
+            for (Map.Entry<String, LocalizedContent> entry : item.getLocalizedContent().entrySet()) {
+                entry.getValue().setContent(null);
+                entry.getValue().setBodySource(source, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Called with documents found to have changed since their items were loaded
+     */
+    public void setStaleListener(Consumer<File> staleListener) {
+        this.staleListener = staleListener;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lazy", lazy);
+        stats.put("compressed", compress);
+        synchronized (cache) {
+            stats.put("cachedBodies", cache.size());
+            stats.put("cachedBytes", cachedBytes);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("staleReads", staleReads.get());
+        return stats;
+    }
+
+    /**
+     * Bodies held by the given items: count, characters when decoded, and the bytes
+     * they take as stored (compressed, or two per char for plain strings), including
+     * their rendered forms. Bodies only cached for lazy items are counted in
+     * {@link #getStatistics()}.
+     */
+    public Map<String, Long> measure(Collection<? extends ContentItem> items) {
+        long count = 0;
+        long chars = 0;
+        long storedBytes = 0;
+        for (ContentItem item : items) {
+            if (item.getBodySource() instanceof ResidentBodySource) {
+                Bodies bodies = ((ResidentBodySource) item.getBodySource()).bodies;
+                count += bodies.count;
+                chars += bodies.chars;
+                storedBytes += bodies.storedBytes;
+            } else if (item.getBodySource() == null) {
+                Bodies bodies = new Bodies(item.getContent(), localizedBodies(item));
+                count += bodies.count;
+                chars += bodies.chars;
+                storedBytes += bodies.storedBytes;
+            }
+        }
+        Map<String, Long> footprint = new LinkedHashMap<>();
+        footprint.put("bodies", count);
+        footprint.put("chars", chars);
+        footprint.put("storedBytes", storedBytes);
+        return footprint;
+    }
+
+    private Bodies get(FileBodySource source) {
+        synchronized (cache) {
+            Bodies bodies = cache.get(source.key);
+            if (bodies != null) {
+                hits.incrementAndGet();
+                return bodies;
+            }
+        }
+        misses.incrementAndGet();
+        byte[] document;
+        try {
+            document = readDocument(source.file);
+        } catch (IOException e) {
+            logger.warn("Could not load body from {}: {}", source.file.getName(), e.getMessage());
+            return Bodies.EMPTY;
+        }
+        Bodies bodies = readBodies(source.file, document);
+        String hash = YamlContentLoader.hash(document);
+        if (source.hash == null || hash.equals(source.hash)) {
+            put(source.key, bodies);
+        } else {
+            // The listing fields are older than the document; have the item reloaded
+            staleReads.incrementAndGet();
+            put(bodyKey(source.file, hash), bodies);
+            staleListener.accept(source.file);
+        }
+        return bodies;
+    }
+
+    private static String bodyKey(File file, String hash) {
+        return file.getPath() + "@" + hash;
+    }
+
+    private void put(String key, Bodies bodies) {
+        synchronized (cache) {
+            Bodies previous = cache.put(key, bodies);
+            cachedBytes += bodies.storedBytes - (previous != null ? previous.storedBytes : 0);
+        }
+    }
+
+    /**
+     * Bodies as held by the store, next to their rendered forms
+     */
+    private Bodies bodies(String content, Map<String, String> localized) {
+        Map<String, Object> stored = new HashMap<>();
+        Map<String, Object> rendered = new HashMap<>();
+        localized.forEach((language, body) -> {
+            Object storedBody = store(body);
+            stored.put(language, storedBody);
+            rendered.put(language, render(body, storedBody));
+        });
+        Object storedContent = store(content);
+        return new Bodies(storedContent, stored, render(content, storedContent), rendered,
+                charCount(content, localized));
+    }
+
+    private Object store(String body) {
+        return compress && body != null ? CompressedText.encode(body) : body;
+    }
+
+    /**
+     * Rendered form of a body, sharing the stored one when the rewrite changes nothing
+     */
+    private Object render(String body, Object storedBody) {
+        String rendered = imageRewriter.rewrite(body);
+        return rendered == null || rendered.equals(body) ? storedBody : store(rendered);
+    }
+
+    private static long charCount(String content, Map<String, String> localized) {
+        long chars = content != null ? content.length() : 0;
+        for (String body : localized.values()) {
+            chars += body.length();
+        }
+        return chars;
+    }
+
+    private static Map<String, String> localizedBodies(ContentItem item) {
+        if (item.getLocalizedContent() == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> bodies = new HashMap<>();
+        item.getLocalizedContent().forEach((language, localized) -> {
+            if (localized.getContent() != null) {
+                bodies.put(language, localized.getContent());
+            }
+        });
+        return bodies;
+    }
+
+    /**
+     * Stream through the document and keep only the body fields
+     */
+    private Bodies readBodies(File file, byte[] document) {
+        String content = null;
+        Map<String, String> localized = new HashMap<>();
+        try (JsonParser parser = yamlFactory.createParser(document)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Bodies.EMPTY;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (CONTENT_FIELD.equals(field) && value.isScalarValue()) {
+                    content = parser.getValueAsString();
+                } else if (LOCALIZED_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+                    readLocalizedBodies(parser, localized);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not load body from {}: {}", file.getName(), e.getMessage());
+        }
+        return bodies(content, localized);
+    }
+
+    private byte[] readDocument(File file) throws IOException {
+        byte[] bytes = repository.read(file);
+        if (bytes == null) {
+            throw new IOException("no longer exists");
+        }
+        return bytes;
+    }
+
+    private void readLocalizedBodies(JsonParser parser, Map<String, String> localized) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String language = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (CONTENT_FIELD.equals(field) && value.isScalarValue()) {
+                    localized.put(language, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Body and localized bodies of one item as written and as rendered, each
+     * either a String or compressed bytes. A rendered body the rewrite left
+     * unchanged is the same object as the stored one.
+     */
+    private static final class Bodies {
+        private static final Bodies EMPTY = new Bodies(null, Collections.<String, String>emptyMap());
+
+        private final Object content;
+        private final Map<String, ?> localized;
+        private final Object renderedContent;
+        private final Map<String, ?> renderedLocalized;
+        private final int count;
+        private final long chars;
+        private final long storedBytes;
+
+        /**
+         * Plain bodies counted as they are, rendered the same
+         */
+        private Bodies(String content, Map<String, String> localized) {
+            this(content, localized, content, localized, charCount(content, localized));
+        }
+
+        private Bodies(Object content, Map<String, ?> localized, Object renderedContent,
+                       Map<String, ?> renderedLocalized, long chars) {
+            this.content = content;
+            this.localized = localized;
+            this.renderedContent = renderedContent;
+            this.renderedLocalized = renderedLocalized;
+            this.count = (content != null ? 1 : 0) + localized.size();
+            this.chars = chars;
+            long bytes = sizeOf(content) + (renderedContent != content ? sizeOf(renderedContent) : 0);
+            for (Map.Entry<String, ?> body : localized.entrySet()) {
+                Object rendered = renderedLocalized.get(body.getKey());
+                bytes += sizeOf(body.getValue()) + (rendered != body.getValue() ? sizeOf(rendered) : 0);
+            }
+            this.storedBytes = bytes;
+        }
+
+        private String content() {
+            return decode(content);
+        }
+
+        private String localized(String language) {
+            return decode(localized.get(language));
+        }
+
+        private String renderedContent() {
+            return decode(renderedContent);
+        }
+
+        private String renderedLocalized(String language) {
+            return decode(renderedLocalized.get(language));
+        }
+
+        private static String decode(Object body) {
+            return body instanceof byte[] ? CompressedText.decode((byte[]) body) : (String) body;
+        }
+
+        private static long sizeOf(Object body) {
+            if (body instanceof byte[]) {
+                return ((byte[]) body).length;
+            }
+            return body != null ? 2L * ((String) body).length() : 0;
+        }
+    }
+
+    /**
+     * Bodies kept in memory with the item (compressed, lazy bodies off)
+     */
+    private static final class ResidentBodySource implements ContentBodySource {
+        private final Bodies bodies;
+
+        private ResidentBodySource(Bodies bodies) {
+            this.bodies = bodies;
+        }
+
+        @Override
+        public String getContent() {
+            return bodies.content();
+        }
+
+        @Override
+        public String getLocalizedContent(String language) {
+            return bodies.localized(language);
+        }
+
+        @Override
+        public String getRenderedContent() {
+            return bodies.renderedContent();
+        }
+
+        @Override
+        public String getRenderedLocalizedContent(String language) {
+            return bodies.renderedLocalized(language);
+        }
+    }
+
+    /**
+     * Reads bodies from the YAML file the item was parsed from
+     */
+    private final class FileBodySource implements ContentBodySource {
+        private final File file;
+        private final String hash;
+        private final String key;
+
+        private FileBodySource(File file, String hash) {
+            this.file = file;
+            this.hash = hash;
+            this.key = bodyKey(file, hash);
+        }
+
+        @Override
+        public String getContent() {
+            return get(this).content();
+        }
+
+        @Override
+        public String getLocalizedContent(String language) {
+            return get(this).localized(language);
+        }
+
+        @Override
+        public String getRenderedContent() {
+            return get(this).renderedContent();
+        }
+
+        @Override
+        public String getRenderedLocalizedContent(String language) {
+            return get(this).renderedLocalized(language);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which cache entries were computed from which content. Each cached query
+ * records the dependencies it read: one item (detail pages), the items of
+ * one tag (tag listing pages), the homepage selection, the full list
+ * (unfiltered listing pages, search), the tag counts or the tag set of a
+ * content type. A publish turns its changed items into the dependencies they
+ * touch, and exactly the entries recorded under those are evicted.
+ * <p>
+ * Records are kept after an eviction, because the entry may be cached again
+ * with the same dependencies. They are dropped only when their item or tag
+ * no longer exists. The records are therefore bounded by the corpus, since
+ * only known slugs and tags are admitted to the caches.
+ */
+final class ContentCacheDependencies {
+
+    private final ConcurrentHashMap<String, Set<Entry>> dependents = new ConcurrentHashMap<>();
+
+    static String item(String type, String slug) {
+        return type + ":item:" + slug;
+    }
+
+    static String tag(String type, String tag) {
+        return type + ":tag:" + tag;
+    }
+
+    static String all(String type) {
+        return type + ":all";
+    }
+
+    static String homepage(String type) {
+        return type + ":homepage";
+    }
+
+    static String tagCounts(String type) {
+        return type + ":tag-counts";
+    }
+
+    static String tagSet(String type) {
+        return type + ":tag-set";
+    }
+
+    /**
+     * Record that the entry under key in the cache was computed from the dependencies
+     */
+    void record(String cacheName, Object key, String... dependencies) {
+        Entry entry = new Entry(cacheName, key);
+        for (String dependency : dependencies) {
+            dependents.computeIfAbsent(dependency, d -> ConcurrentHashMap.newKeySet()).add(entry);
+        }
+    }
+
+    /**
+     * Add the dependencies touched by one changed item to the set. Either item
+     * is null when it was created or deleted.
+     */
+    static void changed(String type, ContentItem before, ContentItem after, Set<String> into) {
+        into.add(all(type));
+        Set<String> tagsBefore = tagsOf(before);
+        Set<String> tagsAfter = tagsOf(after);
+        for (ContentItem item : new ContentItem[] {before, after}) {
+            if (item == null) {
+                continue;
+            }
+            // generateSlug() returns the slug when set, so unsaved items are not modified
+            into.add(item(type, item.generateSlug()));
+            if (item.getSortOrder() > 0) {
+                into.add(homepage(type));
+            }
+        }
+        for (String tag : tagsBefore) {
+            into.add(tag(type, tag));
+        }
+        for (String tag : tagsAfter) {
+            into.add(tag(type, tag));
+        }
+        if (!tagsBefore.equals(tagsAfter)) {
+            into.add(tagCounts(type));
+        }
+    }
+
+    /**
+     * Cache entries recorded under any of the dependencies
+     */
+    Set<Entry> dependents(Collection<String> dependencies) {
+        Set<Entry> entries = new LinkedHashSet<>();
+        for (String dependency : dependencies) {
+            Set<Entry> recorded = dependents.get(dependency);
+            if (recorded != null) {
+                entries.addAll(recorded);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Forget the records of dependencies that no longer exist (deleted items, unused tags)
+     */
+    void forget(Collection<String> dependencies) {
+        for (String dependency : dependencies) {
+            dependents.remove(dependency);
+        }
+    }
+
+    /**
+     * Whether the cache holds the key, without counting a hit in its statistics
+     */
+    static boolean isCached(Cache cache, Object key) {
+        Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            return ((com.github.benmanes.caffeine.cache.Cache<?, ?>) nativeCache).asMap().containsKey(key);
+        }
+        return cache.get(key) != null;
+    }
+
+    private static Set<String> tagsOf(ContentItem item) {
+        return item != null && item.getTags() != null ? new HashSet<>(item.getTags()) : Collections.<String>emptySet();
+    }
+
+    /**
+     * One cache entry: cache name and key
+     */
+    static final class Entry {
+        private final String cacheName;
+        private final Object key;
+
+        Entry(String cacheName, Object key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        String getCacheName() {
+            return cacheName;
+        }
+
+        Object getKey() {
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return cacheName.equals(other.cacheName) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cacheName, key);
+        }
+
+        @Override
+        public String toString() {
+            return cacheName + "::" + key;
+        }
+    }
+}
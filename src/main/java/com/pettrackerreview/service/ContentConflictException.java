@@ -0,0 +1,14 @@
+package com.pettrackerreview.service;
+
+import java.io.IOException;
+
+/**
+ * A save was rejected because the stored item changed since the editor loaded
+ * it, or a rename would overwrite another item
+ */
+public class ContentConflictException extends IOException {
+
+    public ContentConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,171 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Parsed content of one directory, keyed by source file. Each entry remembers
+ * the size, modification time and hash the file had when it was parsed, so a
+ * rescan only needs to re-parse files that were created, modified or deleted
+ * since. Size and mtime alone miss a same-size edit made within the
+ * filesystem's mtime granularity, so when they match the hash decides.
+ */
+final class ContentCorpus<T extends ContentItem> {
+
+    // Coarsest mtime granularity in use (FAT, ext3, HFS+); an edit this close to a read can keep its mtime
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    private final ConcurrentMap<File, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Record a successfully parsed file
+     */
+    void put(File file, T item, ContentFileState state) {
+        entries.put(file, new Entry<>(item, state));
+    }
+
+    /**
+     * Record that the file changed but could not be parsed. The last good
+     * version (if any) keeps being served until the file changes again.
+     */
+    void markFailed(File file, ContentFileState state) {
+        Entry<T> previous = entries.get(file);
+        entries.put(file, new Entry<>(previous != null ? previous.item : null, state));
+    }
+
+    /**
+     * @return true if the file had a parsed item that is now gone
+     */
+    boolean remove(File file) {
+        Entry<T> removed = entries.remove(file);
+        return removed != null && removed.item != null;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * True if the file is unknown, its size/mtime differ from the recorded
+     * state, or they match but its content hash does not
+     * @param hasher hash of the file's current content, null if it cannot be read
+     */
+    boolean isChanged(File file, ContentFileState current, Function<File, String> hasher) {
+        Entry<T> entry = entries.get(file);
+        if (entry == null || !entry.state.hasSameStat(current)) {
+            return true;
+        }
+        return !sameHash(entry, file, current, hasher);
+    }
+
+    /**
+     * Listed documents that are new or changed, plus recorded documents that
+     * are no longer listed. On a full scan only racily clean entries, whose
+     * mtime was within the granularity window of the moment they were
+     * recorded, are hashed; any later edit moves the mtime past the recorded one.
+     * A matching hash counts as a fresh recording, as git does for racily clean
+     * index entries, so a file stops being hashed once its mtime is older
+     * than the window.
+     */
+    Set<File> findChanges(Map<File, ContentFileState> listed, Function<File, String> hasher) {
+        Set<File> changed = new HashSet<>();
+        listed.forEach((file, state) -> {
+            Entry<T> entry = entries.get(file);
+            if (entry == null || !entry.state.hasSameStat(state)) {
+                changed.add(file);
+            } else if (entry.isRacy()) {
+                // Taken before hashing: an edit after this moment moves the mtime past it
+                long checkedAt = System.currentTimeMillis();
+                if (sameHash(entry, file, state, hasher)) {
+                    entry.recordedAt = checkedAt;
+                } else {
+                    changed.add(file);
+                }
+            }
+        });
+        for (File known : entries.keySet()) {
+            if (!listed.containsKey(known)) {
+                changed.add(known);
+            }
+        }
+        return changed;
+    }
+
+    private static boolean sameHash(Entry<?> entry, File file, ContentFileState current,
+                                    Function<File, String> hasher) {
+        String recorded = entry.state.getHash();
+        if (recorded == null) {
+            // Nothing to compare against
+            return false;
+        }
+        String now = current.getHash() != null ? current.getHash() : hasher.apply(file);
+        return recorded.equals(now);
+    }
+
+    /**
+     * Copy of all entries, including files that only have a failed parse recorded
+     */
+    Map<File, Entry<T>> entries() {
+        return new HashMap<>(entries);
+    }
+
+    /**
+     * Item served from the file, or null
+     */
+    T get(File file) {
+        Entry<T> entry = entries.get(file);
+        return entry != null ? entry.item : null;
+    }
+
+    /**
+     * Items that are currently being served
+     */
+    List<T> items() {
+        List<T> items = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries.values()) {
+            if (entry.item != null) {
+                items.add(entry.item);
+            }
+        }
+        return items;
+    }
+
+    static final class Entry<T> {
+        private final T item;
+        private final ContentFileState state;
+        private volatile long recordedAt = System.currentTimeMillis();
+
+        private Entry(T item, ContentFileState state) {
+            this.item = item;
+            this.state = state;
+        }
+
+        /**
+         * The file may have been edited again within the same mtime tick
+         */
+        private boolean isRacy() {
+            return state.getLastModified() >= recordedAt - RACY_WINDOW_MILLIS;
+        }
+
+        /**
+         * Parsed item, or null if the file has never parsed successfully
+         */
+        T getItem() {
+            return item;
+        }
+
+        ContentFileState getState() {
+            return state;
+        }
+    }
+}
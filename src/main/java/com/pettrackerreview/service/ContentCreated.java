@@ -0,0 +1,13 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+/**
+ * An item became visible: a new item, or a scheduled one whose publish time came
+ */
+public class ContentCreated extends ContentEvent {
+
+    public ContentCreated(String type, ContentItem item) {
+        super(type, null, item);
+    }
+}
@@ -0,0 +1,13 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+/**
+ * An item stopped being visible: deleted, renamed away or unpublished
+ */
+public class ContentDeleted extends ContentEvent {
+
+    public ContentDeleted(String type, ContentItem item) {
+        super(type, item, null);
+    }
+}
@@ -0,0 +1,203 @@
+package com.pettrackerreview.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.model.Review;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unpublished edits of blog posts and reviews. Drafts live in their own
+ * directories of the content repository (blog-drafts, review-drafts), which
+ * the loader, the snapshot, the caches and the watcher never look at, so
+ * saving a draft costs the public site nothing. A draft is keyed by the slug
+ * of the item it edits (or its own slug if it was never published) and is
+ * removed when it is published.
+ * <p>
+ * Each draft also records the version of the published item it was started
+ * from, so that publishing it later fails with a conflict instead of
+ * overwriting what another editor published in the meantime. Drafts are
+ * stored only through the configured {@link ContentRepository}; the YAML
+ * store creates the draft directories on the first save.
+ */
+@Service
+public class ContentDraftStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentDraftStore.class);
+
+    private static final String BLOG_DRAFTS_DIR = "blog-drafts";
+    private static final String REVIEW_DRAFTS_DIR = "review-drafts";
+    private static final String BASE_VERSION_FIELD = "draftBaseVersion";
+
+    @Value("${app.content.dir:src/main/resources}")
+    private String contentDir;
+
+    @Autowired
+    private ContentRepository repository;
+
+    @Autowired
+    private YamlContentLoader contentLoader;
+
+    private final ObjectMapper yamlMapper;
+
+    public ContentDraftStore() {
+        this.yamlMapper = new ObjectMapper(new YAMLFactory());
+        this.yamlMapper.registerModule(new JavaTimeModule());
+    }
+
+    public BlogPost getBlogDraft(String key) {
+        return read(BLOG_DRAFTS_DIR, key, BlogPost.class);
+    }
+
+    public Review getReviewDraft(String key) {
+        return read(REVIEW_DRAFTS_DIR, key, Review.class);
+    }
+
+    /**
+     * Version of the published post the draft was started from
+     * @return null if there is no such draft or the post was not published then
+     */
+    public String getBlogDraftBaseVersion(String key) {
+        return readBaseVersion(BLOG_DRAFTS_DIR, key);
+    }
+
+    public String getReviewDraftBaseVersion(String key) {
+        return readBaseVersion(REVIEW_DRAFTS_DIR, key);
+    }
+
+    /**
+     * Blog drafts by key, in key order. The item's slug differs from the key
+     * when the draft renames the post.
+     */
+    public Map<String, BlogPost> getBlogDrafts() {
+        return list(BLOG_DRAFTS_DIR, BlogPost.class);
+    }
+
+    public Map<String, Review> getReviewDrafts() {
+        return list(REVIEW_DRAFTS_DIR, Review.class);
+    }
+
+    /**
+     * @param baseVersion version of the published post the editor started from, null for a new post
+     */
+    public void saveBlogDraft(String key, BlogPost blogPost, String baseVersion) throws IOException {
+        write(BLOG_DRAFTS_DIR, key, blogPost, baseVersion);
+    }
+
+    public void saveReviewDraft(String key, Review review, String baseVersion) throws IOException {
+        write(REVIEW_DRAFTS_DIR, key, review, baseVersion);
+    }
+
+    public void deleteBlogDraft(String key) throws IOException {
+        delete(BLOG_DRAFTS_DIR, key);
+    }
+
+    public void deleteReviewDraft(String key) throws IOException {
+        delete(REVIEW_DRAFTS_DIR, key);
+    }
+
+    private File draftFile(String dir, String key) {
+        if (key == null || key.isEmpty() || key.contains("/") || key.contains("\\") || key.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid draft key: " + key);
+        }
+        return new File(new File(contentDir, dir), key + ".yaml");
+    }
+
+    private <T extends ContentItem> T read(String dir, String key, Class<T> type) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+        File file = draftFile(dir, key);
+        try {
+            byte[] bytes = repository.read(file);
+            if (bytes == null) {
+                return null;
+            }
+            T item = contentLoader.parseString(new String(bytes, StandardCharsets.UTF_8), type);
+            ContentSummaries.apply(item);
+            return item;
+        } catch (IOException e) {
+            logger.warn("Could not read draft {}: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private String readBaseVersion(String dir, String key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+        File file = draftFile(dir, key);
+        try {
+            byte[] bytes = repository.read(file);
+            if (bytes == null) {
+                return null;
+            }
+            JsonNode version = yamlMapper.readTree(bytes).get(BASE_VERSION_FIELD);
+            return version != null && version.isTextual() ? version.asText() : null;
+        } catch (IOException e) {
+            logger.warn("Could not read draft {}: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private <T extends ContentItem> Map<String, T> list(String dir, Class<T> type) {
+        Map<String, T> drafts = new LinkedHashMap<>();
+        for (String key : keys(dir)) {
+            T item = read(dir, key, type);
+            if (item != null) {
+                drafts.put(key, item);
+            }
+        }
+        return drafts;
+    }
+
+    private List<String> keys(String dir) {
+        List<String> keys = new ArrayList<>();
+        try {
+            for (File file : repository.list(new File(contentDir, dir)).keySet()) {
+                String name = file.getName();
+                keys.add(name.substring(0, name.lastIndexOf('.')));
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list drafts in {}: {}", dir, e.getMessage());
+        }
+        keys.sort(null);
+        return keys;
+    }
+
+    private synchronized void write(String dir, String key, ContentItem item, String baseVersion) throws IOException {
+        File file = draftFile(dir, key);
+        // The loader ignores the extra field when it reads the draft back as an item
+        ObjectNode document = yamlMapper.valueToTree(item);
+        if (baseVersion != null && !baseVersion.isEmpty()) {
+            document.put(BASE_VERSION_FIELD, baseVersion);
+        }
+        byte[] bytes = yamlMapper.writeValueAsBytes(document);
+        try (ContentRepository.StagedWrite staged = repository.stage(file, bytes, null)) {
+            staged.commit(null);
+        }
+        repository.sync(file.getParentFile());
+    }
+
+    private synchronized void delete(String dir, String key) throws IOException {
+        File file = draftFile(dir, key);
+        repository.delete(file);
+        repository.sync(file.getParentFile());
+    }
+}
@@ -0,0 +1,72 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+/**
+ * A change to the published content, as seen by the public site. Events are
+ * published by {@link YamlContentService} after each new snapshot goes live
+ * and delivered in order by the {@link ContentEventBus}.
+ */
+public abstract class ContentEvent {
+
+    private final String type;
+    private final ContentItem oldItem;
+    private final ContentItem newItem;
+    private final long publishedAt = System.currentTimeMillis();
+    private long sequence;
+
+    ContentEvent(String type, ContentItem oldItem, ContentItem newItem) {
+        this.type = type;
+        this.oldItem = oldItem;
+        this.newItem = newItem;
+    }
+
+    /**
+     * "blogs" or "reviews"
+     */
+    public String getType() {
+        return type;
+    }
+
+    public boolean isBlogPost() {
+        return "blogs".equals(type);
+    }
+
+    /**
+     * The item before the change, or null if it was created
+     */
+    public ContentItem getOldItem() {
+        return oldItem;
+    }
+
+    /**
+     * The item after the change, or null if it was deleted
+     */
+    public ContentItem getNewItem() {
+        return newItem;
+    }
+
+    public String getSlug() {
+        return newItem != null ? newItem.getSlug() : oldItem.getSlug();
+    }
+
+    /**
+     * Position of the event in the bus, increasing by one per event
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + type + "/" + getSlug() + ", sequence=" + sequence + "}";
+    }
+}
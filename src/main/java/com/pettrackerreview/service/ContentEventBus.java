@@ -0,0 +1,208 @@
+package com.pettrackerreview.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process bus for {@link ContentEvent}s. Every subscriber has its own
+ * bounded queue and delivery thread, so a slow subscriber neither blocks the
+ * publisher (which holds the content write lock) nor delays the others.
+ * Events reach each subscriber in publish order. When a queue is full its
+ * pending events are dropped and the subscriber is asked to resync instead.
+ * A full reload publishes a single resync to everyone rather than one event
+ * per item.
+ * <p>
+ * Per-subscriber metrics, tagged subscriber=name: content.events.lag (events
+ * published but not yet handled), content.events.lag.time (ms the oldest
+ * pending event has waited), content.events.delivered, content.events.dropped
+ * and content.events.failed.
+ */
+@Service
+public class ContentEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentEventBus.class);
+
+    // 每个订阅者的事件队列长度，满了之后丢弃并让订阅者整体重建
+    @Value("${app.content.events.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Register a listener under a name used for its thread and metrics. The
+     * listener's first call is {@link ContentEventListener#resync()}.
+     */
+    public void subscribe(String name, ContentEventListener listener) {
+        Subscriber subscriber = new Subscriber(name, listener, queueCapacity);
+        Gauge.builder("content.events.lag", subscriber, Subscriber::lag)
+                .tag("subscriber", name)
+                .description("Content events published but not yet handled")
+                .register(meterRegistry);
+        Gauge.builder("content.events.lag.time", subscriber, Subscriber::lagMillis)
+                .tag("subscriber", name)
+                .baseUnit("milliseconds")
+                .description("Time the oldest pending content event has waited")
+                .register(meterRegistry);
+        subscriber.delivered = meterRegistry.counter("content.events.delivered", "subscriber", name);
+        subscriber.dropped = meterRegistry.counter("content.events.dropped", "subscriber", name);
+        subscriber.failed = meterRegistry.counter("content.events.failed", "subscriber", name);
+        subscribers.add(subscriber);
+        subscriber.thread.start();
+        logger.info("Content event subscriber '{}' registered", name);
+    }
+
+    /**
+     * Stamp the event with the next sequence number and queue it for every
+     * subscriber; never blocks
+     */
+    public void publish(ContentEvent event) {
+        event.setSequence(sequence.incrementAndGet());
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * Ask every subscriber to rebuild from the snapshot, e.g. after a full
+     * reload replaced every item. Events still queued are covered by the
+     * rebuild and discarded.
+     */
+    public void publishResync() {
+        long covered = sequence.get();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.requestResync(covered);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.thread.interrupt();
+        }
+    }
+
+    private static final class Subscriber implements Runnable {
+        // Queued by a resync request to wake the delivery thread; never delivered
+        private static final ContentEvent WAKE_UP = new ContentEvent(null, null, null) {
+        };
+
+        private final String name;
+        private final ContentEventListener listener;
+        private final BlockingQueue<ContentEvent> queue;
+        private final AtomicBoolean resyncPending = new AtomicBoolean(true);
+        private final Thread thread;
+        private volatile long offered;
+        // Events before this one were dropped and are covered by the next resync
+        private volatile long resyncFrom;
+        private volatile long handled;
+        private Counter delivered;
+        private Counter dropped;
+        private Counter failed;
+
+        Subscriber(String name, ContentEventListener listener, int capacity) {
+            this.name = name;
+            this.listener = listener;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, "content-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        // Called by one publisher at a time (the content service publishes under its lock)
+        void offer(ContentEvent event) {
+            offered = event.getSequence();
+            if (queue.offer(event)) {
+                return;
+            }
+            int lost = queue.size();
+            queue.clear();
+            resyncFrom = event.getSequence();
+            boolean alreadyPending = resyncPending.getAndSet(true);
+            dropped.increment(lost);
+            if (!queue.offer(event)) {
+                dropped.increment();
+            }
+            if (!alreadyPending) {
+                logger.warn("Content event subscriber '{}' fell {} events behind; it will resync", name, lost);
+            }
+        }
+
+        // Called by the publisher, like offer
+        void requestResync(long covered) {
+            queue.clear();
+            resyncFrom = covered + 1;
+            resyncPending.set(true);
+            queue.offer(WAKE_UP);
+        }
+
+        double lag() {
+            return Math.max(0, offered - handled);
+        }
+
+        double lagMillis() {
+            ContentEvent oldest = queue.peek();
+            return oldest != null ? System.currentTimeMillis() - oldest.getPublishedAt() : 0;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                resyncIfPending();
+                ContentEvent event;
+                try {
+                    event = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // The queue may have overflowed while this event was being taken
+                resyncIfPending();
+                if (event == WAKE_UP) {
+                    handled = Math.max(handled, resyncFrom - 1);
+                    continue;
+                }
+                if (event.getSequence() < resyncFrom) {
+                    dropped.increment();
+                    handled = event.getSequence();
+                    continue;
+                }
+                try {
+                    listener.onEvent(event);
+                    delivered.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    logger.error("Content event subscriber '{}' failed on {}", name, event, e);
+                }
+                handled = event.getSequence();
+            }
+        }
+
+        private void resyncIfPending() {
+            if (!resyncPending.getAndSet(false)) {
+                return;
+            }
+            try {
+                listener.resync();
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Content event subscriber '{}' failed to resync", name, e);
+            }
+        }
+    }
+}
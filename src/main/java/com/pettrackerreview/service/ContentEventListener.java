@@ -0,0 +1,18 @@
+package com.pettrackerreview.service;
+
+/**
+ * Subscriber of the {@link ContentEventBus}. Both methods are called on the
+ * subscriber's own thread, one at a time, in publish order.
+ */
+public interface ContentEventListener {
+
+    void onEvent(ContentEvent event);
+
+    /**
+     * Rebuild from {@link YamlContentService#getSnapshot()}: called once when
+     * subscribing and again whenever events had to be dropped because this
+     * subscriber fell behind. Events delivered afterwards may already be
+     * reflected in the snapshot, so applying them must be idempotent.
+     */
+    void resync();
+}
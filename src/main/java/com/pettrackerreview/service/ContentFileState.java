@@ -0,0 +1,53 @@
+package com.pettrackerreview.service;
+
+import java.io.File;
+
+/**
+ * Size and modification time of a content file at the moment it was read,
+ * plus the SHA-256 of its bytes when they were hashed
+ */
+public final class ContentFileState {
+
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+
+    public ContentFileState(long size, long lastModified, String hash) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+    }
+
+    /**
+     * Current size and mtime of the file, without a hash
+     */
+    public static ContentFileState of(File file) {
+        return new ContentFileState(file.length(), file.lastModified(), null);
+    }
+
+    public ContentFileState withHash(String hash) {
+        return new ContentFileState(size, lastModified, hash);
+    }
+
+    /**
+     * True if size and mtime match; the hash is not compared
+     */
+    public boolean hasSameStat(ContentFileState other) {
+        return other != null && size == other.size && lastModified == other.lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Hex SHA-256 of the file content, or null if it was not hashed
+     */
+    public String getHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pettrackerreview.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Filters for listing queries: tags (all or any), brand and minimum rating.
+ * Immutable; unset criteria match everything.
+ */
+public final class ContentFilter {
+
+    public static final ContentFilter NONE = new ContentFilter(Collections.<String>emptyList(), true, null, null);
+
+    private final List<String> tags;
+    private final boolean matchAllTags;
+    private final String brand;
+    private final Double minRating;
+
+    private ContentFilter(List<String> tags, boolean matchAllTags, String brand, Double minRating) {
+        this.tags = tags;
+        this.matchAllTags = matchAllTags;
+        this.brand = brand;
+        this.minRating = minRating;
+    }
+
+    /**
+     * Items carrying all (matchAll) or any of the tags; an empty list matches everything
+     */
+    public static ContentFilter tags(List<String> tags, boolean matchAll) {
+        return new ContentFilter(Collections.unmodifiableList(tags), matchAll, null, null);
+    }
+
+    public ContentFilter withBrand(String brand) {
+        return new ContentFilter(tags, matchAllTags, brand != null && !brand.trim().isEmpty() ? brand : null, minRating);
+    }
+
+    public ContentFilter withMinRating(Double minRating) {
+        return new ContentFilter(tags, matchAllTags, brand, minRating);
+    }
+
+    public boolean isEmpty() {
+        return tags.isEmpty() && brand == null && minRating == null;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public boolean isMatchAllTags() {
+        return matchAllTags;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+}
@@ -0,0 +1,140 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.Image;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the {@code <img>} tags of article bodies for the public pages, once
+ * when a body is loaded: intrinsic width/height, lazy loading (except the first
+ * image, which is often the largest paint) and a srcset with the thumbnail for
+ * images from the image library. Attributes already present are kept, so
+ * rewriting is idempotent. The stored body is never replaced by the result.
+ */
+@Component
+public class ContentImageRewriter {
+
+    private static final Pattern IMG = Pattern.compile("<img\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE = Pattern.compile(
+            "([a-zA-Z_:][-a-zA-Z0-9_:.]*)(?:\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'=<>`]+)))?");
+
+    private static final String UPLOADS_PATH = "uploads/images/";
+
+    // Article column width on desktop; below it images span the viewport
+    private static final String SIZES = "(max-width: 800px) 100vw, 800px";
+
+    @Value("${app.content.image-rewrite.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private ImageService imageService;
+
+    public String rewrite(String html) {
+        if (!enabled || html == null || html.isEmpty()) {
+            return html;
+        }
+        Matcher matcher = IMG.matcher(html);
+        if (!matcher.find()) {
+            return html;
+        }
+        Map<String, Image> images = imageService.getImagesByPath();
+        StringBuilder out = new StringBuilder(html.length() + 256);
+        int last = 0;
+        boolean first = true;
+        do {
+            out.append(html, last, matcher.start());
+            out.append(rewriteTag(matcher.group(), images, first));
+            last = matcher.end();
+            first = false;
+        } while (matcher.find());
+        out.append(html, last, html.length());
+        return out.toString();
+    }
+
+    private String rewriteTag(String tag, Map<String, Image> images, boolean first) {
+        boolean selfClosing = tag.endsWith("/>");
+        String body = tag.substring(4, tag.length() - (selfClosing ? 2 : 1));
+        Map<String, String> attributes = parseAttributes(body);
+
+        Map<String, String> added = new LinkedHashMap<>();
+        Image image = images.get(uploadPath(attributes.get("src")));
+        if (image != null && image.getWidth() > 0 && image.getHeight() > 0) {
+            if (!attributes.containsKey("width") && !attributes.containsKey("height")) {
+                added.put("width", String.valueOf(image.getWidth()));
+                added.put("height", String.valueOf(image.getHeight()));
+            }
+            String srcset = srcset(image);
+            if (srcset != null && !attributes.containsKey("srcset")) {
+                added.put("srcset", srcset);
+                if (!attributes.containsKey("sizes")) {
+                    added.put("sizes", SIZES);
+                }
+            }
+        }
+        if (!first && !attributes.containsKey("loading")) {
+            added.put("loading", "lazy");
+        }
+        if (!attributes.containsKey("decoding")) {
+            added.put("decoding", "async");
+        }
+        if (added.isEmpty()) {
+            return tag;
+        }
+
+        StringBuilder rewritten = new StringBuilder(tag.length() + 128);
+        rewritten.append("<img").append(body.replaceAll("\\s+$", ""));
+        added.forEach((name, value) -> rewritten.append(' ').append(name).append("=\"").append(value).append('"'));
+        return rewritten.append(selfClosing ? " />" : ">").toString();
+    }
+
+    /**
+     * Thumbnail and original as width descriptors; null if there is no smaller thumbnail
+     */
+    private String srcset(Image image) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        int thumbnailSize = imageService.getThumbnailSize();
+        if (image.getThumbnailPath() == null || longest <= thumbnailSize) {
+            return null;
+        }
+        // Thumbnails are scaled to fit a thumbnailSize square
+        int thumbnailWidth = (int) Math.round((double) image.getWidth() * thumbnailSize / longest);
+        return "/" + image.getThumbnailPath() + " " + thumbnailWidth + "w, /"
+                + image.getFilePath() + " " + image.getWidth() + "w";
+    }
+
+    /**
+     * uploads/images/... path of a src pointing at the image library, or null
+     */
+    private static String uploadPath(String src) {
+        if (src == null) {
+            return null;
+        }
+        String path = src.trim();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path.startsWith(UPLOADS_PATH) ? path : null;
+    }
+
+    private static Map<String, String> parseAttributes(String body) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Matcher matcher = ATTRIBUTE.matcher(body);
+        while (matcher.find()) {
+            String value = matcher.group(2) != null ? matcher.group(2)
+                    : matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+            attributes.putIfAbsent(matcher.group(1).toLowerCase(Locale.ROOT), value != null ? value : "");
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,431 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable lookup structures for one content type (blog posts or reviews).
+ * Built once per reload; every query is a map lookup or a sub-list.
+ */
+public final class ContentIndex<T extends ContentItem> {
+
+    private final List<T> byDate;
+    private final List<T> homepage;
+    private final Map<ContentOrder, List<T>> orderings;
+    private final Map<ContentOrder, ListingKey[]> keys;
+    // Position of each item (by date ordinal) in every ordering
+    private final Map<ContentOrder, int[]> positions;
+    private final Map<String, T> bySlug;
+    private final Map<String, List<T>> byTag;
+    private final TagIndex tagIndex;
+    private final Map<String, Integer> ordinals;
+    private final FacetIndex facets;
+    private final RelatedContentGraph related;
+
+    public ContentIndex(Collection<T> items) {
+        this(items, item -> null, item -> 0);
+    }
+
+    /**
+     * @param brandOf brand used to relate and filter items besides their tags; may return null
+     * @param ratingOf rating used by {@link ContentOrder#RATING} and the minimum rating filter
+     */
+    public ContentIndex(Collection<T> items, Function<? super T, String> brandOf, ToDoubleFunction<? super T> ratingOf) {
+        // One sorted list per ordering, with the keys used by cursors
+        Map<ContentOrder, List<T>> lists = new EnumMap<>(ContentOrder.class);
+        Map<ContentOrder, ListingKey[]> orderKeys = new EnumMap<>(ContentOrder.class);
+        for (ContentOrder order : ContentOrder.values()) {
+            List<T> list = new ArrayList<>(items);
+            Map<T, ListingKey> itemKeys = new IdentityHashMap<>();
+            for (T item : list) {
+                itemKeys.put(item, order.keyOf(item, ratingOf.applyAsDouble(item)));
+            }
+            list.sort(Comparator.comparing(itemKeys::get));
+            ListingKey[] sortedKeys = new ListingKey[list.size()];
+            for (int i = 0; i < sortedKeys.length; i++) {
+                sortedKeys[i] = itemKeys.get(list.get(i));
+            }
+            lists.put(order, Collections.unmodifiableList(list));
+            orderKeys.put(order, sortedKeys);
+        }
+        this.orderings = Collections.unmodifiableMap(lists);
+        this.keys = Collections.unmodifiableMap(orderKeys);
+
+        // Newest first; items without a date go last
+        List<T> sorted = lists.get(ContentOrder.DATE);
+        this.byDate = sorted;
+
+        // Homepage order: sortOrder descending, ties newest first
+        List<T> shown = new ArrayList<>();
+        for (T item : lists.get(ContentOrder.SORT_ORDER)) {
+            if (item.isShowOnHomepage()) {
+                shown.add(item);
+            }
+        }
+        this.homepage = Collections.unmodifiableList(shown);
+
+        Map<String, T> slugs = new HashMap<>();
+        Map<String, Integer> slugOrdinals = new HashMap<>();
+        List<Set<String>> tagsByOrdinal = new ArrayList<>(sorted.size());
+        List<String> brands = new ArrayList<>(sorted.size());
+        List<LocalDateTime> dates = new ArrayList<>(sorted.size());
+        double[] ratings = new double[sorted.size()];
+        Map<T, Integer> dateOrdinals = new IdentityHashMap<>();
+        for (T item : sorted) {
+            ratings[dateOrdinals.size()] = ratingOf.applyAsDouble(item);
+            dateOrdinals.put(item, dateOrdinals.size());
+            // First one wins, matching the old findFirst() over the date-sorted list
+            slugs.putIfAbsent(item.getSlug(), item);
+            slugOrdinals.putIfAbsent(item.getSlug(), tagsByOrdinal.size());
+            tagsByOrdinal.add(item.getTags() != null ? new LinkedHashSet<>(item.getTags()) : null);
+            brands.add(brandOf.apply(item));
+            dates.add(item.getDate());
+        }
+        this.bySlug = Collections.unmodifiableMap(slugs);
+        this.ordinals = Collections.unmodifiableMap(slugOrdinals);
+        this.tagIndex = new TagIndex(tagsByOrdinal);
+        this.facets = new FacetIndex(brands, ratings);
+        this.related = new RelatedContentGraph(tagIndex, facets, tagsByOrdinal, brands, dates);
+
+        // Filters are evaluated over date ordinals and then mapped into the requested order
+        Map<ContentOrder, int[]> orderPositions = new EnumMap<>(ContentOrder.class);
+        lists.forEach((order, list) -> {
+            int[] position = new int[list.size()];
+            for (int i = 0; i < position.length; i++) {
+                position[dateOrdinals.get(list.get(i))] = i;
+            }
+            orderPositions.put(order, position);
+        });
+        this.positions = Collections.unmodifiableMap(orderPositions);
+
+        // Single-tag pages are the most requested, so their lists are materialized up front
+        Map<String, List<T>> tagged = new HashMap<>();
+        for (String tag : tagIndex.tags()) {
+            tagged.put(tag, select(tagIndex.match(Collections.singleton(tag), true)));
+        }
+        this.byTag = Collections.unmodifiableMap(tagged);
+    }
+
+    /**
+     * View of the base index with every item replaced by its localized copy.
+     * Orderings, tag bitsets and the related graph are shared with the base.
+     */
+    private ContentIndex(ContentIndex<T> base, UnaryOperator<T> localize) {
+        Map<T, T> copies = new IdentityHashMap<>();
+        for (T item : base.byDate) {
+            copies.put(item, localize.apply(item));
+        }
+        this.byDate = replaceAll(base.byDate, copies);
+        this.homepage = replaceAll(base.homepage, copies);
+        Map<ContentOrder, List<T>> lists = new EnumMap<>(ContentOrder.class);
+        base.orderings.forEach((order, items) -> lists.put(order, replaceAll(items, copies)));
+        this.orderings = Collections.unmodifiableMap(lists);
+        this.keys = base.keys;
+        this.positions = base.positions;
+
+        Map<String, T> slugs = new HashMap<>();
+        base.bySlug.forEach((slug, item) -> slugs.put(slug, copies.get(item)));
+        this.bySlug = Collections.unmodifiableMap(slugs);
+
+        Map<String, List<T>> tagged = new HashMap<>();
+        base.byTag.forEach((tag, items) -> tagged.put(tag, replaceAll(items, copies)));
+        this.byTag = Collections.unmodifiableMap(tagged);
+
+        this.tagIndex = base.tagIndex;
+        this.ordinals = base.ordinals;
+        this.facets = base.facets;
+        this.related = base.related;
+    }
+
+    /**
+     * Same index with items passed through localize, e.g. to resolve translations
+     */
+    public ContentIndex<T> localized(UnaryOperator<T> localize) {
+        return new ContentIndex<>(this, localize);
+    }
+
+    private static <T> List<T> replaceAll(List<T> items, Map<T, T> copies) {
+        List<T> replaced = new ArrayList<>(items.size());
+        for (T item : items) {
+            replaced.add(copies.get(item));
+        }
+        return Collections.unmodifiableList(replaced);
+    }
+
+    /**
+     * All items, newest first
+     */
+    public List<T> all() {
+        return byDate;
+    }
+
+    /**
+     * All items in the given order
+     */
+    public List<T> sorted(ContentOrder order) {
+        return orderings.get(order);
+    }
+
+    /**
+     * Offset page (1-based) of all items in the given order
+     */
+    public ContentPage<T> page(ContentOrder order, int page, int size) {
+        return ContentPage.of(sorted(order), page, size);
+    }
+
+    /**
+     * Keyset page: up to size items following the cursor position. A missing or
+     * malformed cursor starts at the beginning; a cursor whose item has since
+     * been removed still resumes at the right place.
+     */
+    public ContentPage<T> after(ContentOrder order, String cursor, int size) {
+        ListingKey key = ListingKey.fromCursor(cursor);
+        int start = 0;
+        if (key != null) {
+            int found = Arrays.binarySearch(keys.get(order), key);
+            start = found >= 0 ? found + 1 : -found - 1;
+        }
+        return slice(order, start, Math.max(size, 1));
+    }
+
+    /**
+     * Keyset page: up to size items preceding the cursor position
+     */
+    public ContentPage<T> before(ContentOrder order, String cursor, int size) {
+        ListingKey key = ListingKey.fromCursor(cursor);
+        if (key == null) {
+            return after(order, null, size);
+        }
+        int found = Arrays.binarySearch(keys.get(order), key);
+        int end = found >= 0 ? found : -found - 1;
+        int start = Math.max(0, end - Math.max(size, 1));
+        return slice(order, start, Math.max(size, 1));
+    }
+
+    private ContentPage<T> slice(ContentOrder order, int start, int size) {
+        List<T> list = sorted(order);
+        ListingKey[] orderKeys = keys.get(order);
+        int end = Math.min(start + size, list.size());
+        String next = end < list.size() && end > 0 ? orderKeys[end - 1].toCursor() : null;
+        String previous = start > 0 && start < orderKeys.length ? orderKeys[start].toCursor() : null;
+        return new ContentPage<>(list.subList(start, end), start, size, list.size(), next, previous);
+    }
+
+    /**
+     * Offset page (1-based) of the items matching the filter, in the given order.
+     * Filtered listings link their pages by cursor, so this serves the first page
+     * and old page-numbered links; the page carries cursors to continue from.
+     */
+    public ContentPage<T> page(ContentOrder order, ContentFilter filter, int page, int size) {
+        BitSet allowed = allowed(order, filter);
+        if (allowed == null) {
+            return page(order, page, size);
+        }
+        int pageSize = Math.max(size, 1);
+        long skip = (long) (Math.max(page, 1) - 1) * pageSize;
+        int start = skip < allowed.cardinality() ? nthSetBit(allowed, (int) skip) : -1;
+        return slice(order, allowed, start, pageSize);
+    }
+
+    /**
+     * Position of the n-th (0-based) set bit, found by counting bits a word at a time
+     */
+    private static int nthSetBit(BitSet bits, int n) {
+        long[] words = bits.toLongArray();
+        for (int w = 0; w < words.length; w++) {
+            int count = Long.bitCount(words[w]);
+            if (n < count) {
+                long word = words[w];
+                for (int k = 0; k < n; k++) {
+                    word &= word - 1;
+                }
+                return w * 64 + Long.numberOfTrailingZeros(word);
+            }
+            n -= count;
+        }
+        return -1;
+    }
+
+    /**
+     * Keyset page of the items matching the filter, following the cursor position
+     */
+    public ContentPage<T> after(ContentOrder order, ContentFilter filter, String cursor, int size) {
+        BitSet allowed = allowed(order, filter);
+        if (allowed == null) {
+            return after(order, cursor, size);
+        }
+        ListingKey key = ListingKey.fromCursor(cursor);
+        int start = 0;
+        if (key != null) {
+            int found = Arrays.binarySearch(keys.get(order), key);
+            start = found >= 0 ? found + 1 : -found - 1;
+        }
+        return slice(order, allowed, allowed.nextSetBit(start), Math.max(size, 1));
+    }
+
+    /**
+     * Keyset page of the items matching the filter, preceding the cursor position
+     */
+    public ContentPage<T> before(ContentOrder order, ContentFilter filter, String cursor, int size) {
+        BitSet allowed = allowed(order, filter);
+        if (allowed == null) {
+            return before(order, cursor, size);
+        }
+        ListingKey key = ListingKey.fromCursor(cursor);
+        if (key == null) {
+            return after(order, filter, null, size);
+        }
+        int found = Arrays.binarySearch(keys.get(order), key);
+        int end = found >= 0 ? found : -found - 1;
+        // Walk back size matching positions from the cursor
+        int start = end;
+        for (int k = 0; k < Math.max(size, 1); k++) {
+            int p = allowed.previousSetBit(start - 1);
+            if (p < 0) {
+                break;
+            }
+            start = p;
+        }
+        return slice(order, allowed, allowed.nextSetBit(start), Math.max(size, 1));
+    }
+
+    /**
+     * Up to size matching items starting at position start (-1 for past the end)
+     */
+    private ContentPage<T> slice(ContentOrder order, BitSet allowed, int start, int size) {
+        List<T> list = sorted(order);
+        ListingKey[] orderKeys = keys.get(order);
+        int total = allowed.cardinality();
+        if (start < 0) {
+            return new ContentPage<>(Collections.emptyList(), total, size, total, null, null);
+        }
+        List<T> items = new ArrayList<>(size);
+        int last = start;
+        for (int p = start; p >= 0 && items.size() < size; p = allowed.nextSetBit(p + 1)) {
+            items.add(list.get(p));
+            last = p;
+        }
+        String next = allowed.nextSetBit(last + 1) >= 0 ? orderKeys[last].toCursor() : null;
+        String previous = start > 0 && allowed.previousSetBit(start - 1) >= 0 ? orderKeys[start].toCursor() : null;
+        return new ContentPage<>(items, allowed.get(0, start).cardinality(), size, total, next, previous);
+    }
+
+    /**
+     * Positions (in the given order) of the items matching the filter, or null
+     * when the filter matches everything. Tags, brand and rating are intersected
+     * as bitsets over date ordinals, so no item is inspected.
+     */
+    private BitSet allowed(ContentOrder order, ContentFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return null;
+        }
+        BitSet matching = null;
+        if (!filter.getTags().isEmpty()) {
+            matching = tagIndex.match(filter.getTags(), filter.isMatchAllTags());
+        }
+        if (filter.getBrand() != null) {
+            matching = intersect(matching, facets.brand(filter.getBrand()));
+        }
+        if (filter.getMinRating() != null) {
+            matching = intersect(matching, facets.ratedAtLeast(filter.getMinRating()));
+        }
+        if (order == ContentOrder.DATE) {
+            return matching;
+        }
+        int[] position = positions.get(order);
+        BitSet allowed = new BitSet(position.length);
+        for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+            allowed.set(position[i]);
+        }
+        return allowed;
+    }
+
+    private static BitSet intersect(BitSet matching, BitSet shared) {
+        if (matching == null) {
+            // Facet bitsets are shared, so copy before narrowing further
+            return (BitSet) shared.clone();
+        }
+        matching.and(shared);
+        return matching;
+    }
+
+    /**
+     * Homepage items ordered by sortOrder, truncated to limit
+     */
+    public List<T> homepage(int limit) {
+        return limit < homepage.size() ? homepage.subList(0, Math.max(limit, 0)) : homepage;
+    }
+
+    public T bySlug(String slug) {
+        return slug != null ? bySlug.get(slug) : null;
+    }
+
+    /**
+     * Items most related to the given one, best first, at most limit
+     * (capped at {@value RelatedContentGraph#MAX_NEIGHBORS})
+     */
+    public List<T> related(String slug, int limit) {
+        Integer ordinal = slug != null ? ordinals.get(slug) : null;
+        if (ordinal == null) {
+            return Collections.emptyList();
+        }
+        int[] neighbors = related.neighbors(ordinal);
+        List<T> items = new ArrayList<>(Math.min(limit, neighbors.length));
+        for (int i = 0; i < neighbors.length && i < limit; i++) {
+            items.add(byDate.get(neighbors[i]));
+        }
+        return items;
+    }
+
+    /**
+     * Items carrying the tag, newest first
+     */
+    public List<T> byTag(String tag) {
+        List<T> items = tag != null ? byTag.get(tag) : null;
+        return items != null ? items : Collections.emptyList();
+    }
+
+    /**
+     * Every tag that has at least one item
+     */
+    public Set<String> tags() {
+        return tagIndex.tags();
+    }
+
+    /**
+     * Item count per tag among the items matching the filter, most used first;
+     * the whole index's counts when the filter is empty
+     */
+    public Map<String, Integer> tagCounts(ContentFilter filter) {
+        BitSet matching = allowed(ContentOrder.DATE, filter);
+        return matching != null ? tagIndex.counts(matching) : tagIndex.counts();
+    }
+
+    public TagIndex tagIndex() {
+        return tagIndex;
+    }
+
+    /**
+     * Item count per brand, by name
+     */
+    public Map<String, Integer> brandCounts() {
+        return facets.brandCounts();
+    }
+
+    private List<T> select(BitSet ordinals) {
+        List<T> items = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            items.add(byDate.get(i));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    public int size() {
+        return byDate.size();
+    }
+}
@@ -0,0 +1,73 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.model.Review;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one String instance per distinct tag, author and brand across all
+ * loaded items. Every parse creates fresh copies of these few values, so
+ * without this each item holds its own.
+ */
+@Component
+public class ContentInterner {
+
+    // Only grows by new distinct values; the vocabulary is small and stable
+    private final Map<String, String> pool = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    public void intern(ContentItem item) {
+        if (item instanceof BlogPost) {
+            BlogPost post = (BlogPost) item;
+            post.setAuthor(intern(post.getAuthor()));
+            post.setTags(intern(post.getTags()));
+        } else if (item instanceof Review) {
+            Review review = (Review) item;
+            review.setAuthor(intern(review.getAuthor()));
+            review.setProductBrand(intern(review.getProductBrand()));
+            review.setTags(intern(review.getTags()));
+        }
+    }
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookups.incrementAndGet();
+        String existing = pool.putIfAbsent(value, value);
+        if (existing != null) {
+            shared.incrementAndGet();
+            return existing;
+        }
+        return value;
+    }
+
+    private List<String> intern(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> interned = new ArrayList<>(values.size());
+        for (String value : values) {
+            interned.add(intern(value));
+        }
+        return interned;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("distinct", pool.size());
+        stats.put("lookups", lookups.get());
+        stats.put("shared", shared.get());
+        return stats;
+    }
+}
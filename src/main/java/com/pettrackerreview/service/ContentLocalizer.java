@@ -0,0 +1,118 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentBodySource;
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.model.ContentSummary;
+import com.pettrackerreview.model.LocalizedContent;
+import com.pettrackerreview.model.Review;
+
+/**
+ * Builds the language-specific copy of a blog post or review shown on list
+ * pages: localized fields where a translation exists, base fields otherwise.
+ * Used when a snapshot is built, not per request.
+ */
+final class ContentLocalizer {
+
+    private ContentLocalizer() {
+    }
+
+    /**
+     * Localized copy of the blog post, or the post itself if it has no translation for the language
+     */
+    static BlogPost localize(BlogPost blogPost, String language) {
+        LocalizedContent localizedContent = translation(blogPost, language);
+        if (localizedContent == null) {
+            return blogPost;
+        }
+        BlogPost localizedBlogPost = new BlogPost();
+        localizedBlogPost.setTitle(orElse(localizedContent.getTitle(), blogPost.getTitle()));
+        localizedBlogPost.setAuthor(blogPost.getAuthor());
+        localizedBlogPost.setDate(blogPost.getDate());
+        localizedBlogPost.setUnpublishDate(blogPost.getUnpublishDate());
+        localizedBlogPost.setTags(blogPost.getTags());
+        localizedBlogPost.setMetaDescription(orElse(localizedContent.getMetaDescription(), blogPost.getMetaDescription()));
+        localizedBlogPost.setMetaTitle(orElse(localizedContent.getMetaTitle(), blogPost.getMetaTitle()));
+        localizedBlogPost.setBodySource(localizedBody(blogPost, localizedContent));
+        localizedBlogPost.setSummary(localizedSummary(blogPost, localizedContent));
+        localizedBlogPost.setSlug(blogPost.getSlug());
+        localizedBlogPost.setSortOrder(blogPost.getSortOrder());
+        localizedBlogPost.setLocalizedContent(blogPost.getLocalizedContent());
+        return localizedBlogPost;
+    }
+
+    /**
+     * Localized copy of the review, or the review itself if it has no translation for the language
+     */
+    static Review localize(Review review, String language) {
+        LocalizedContent localizedContent = translation(review, language);
+        if (localizedContent == null) {
+            return review;
+        }
+        Review localizedReview = new Review();
+        localizedReview.setTitle(orElse(localizedContent.getTitle(), review.getTitle()));
+        localizedReview.setAuthor(review.getAuthor());
+        localizedReview.setDate(review.getDate());
+        localizedReview.setUnpublishDate(review.getUnpublishDate());
+        localizedReview.setTags(review.getTags());
+        localizedReview.setMetaDescription(orElse(localizedContent.getMetaDescription(), review.getMetaDescription()));
+        localizedReview.setMetaTitle(orElse(localizedContent.getMetaTitle(), review.getMetaTitle()));
+        localizedReview.setBodySource(localizedBody(review, localizedContent));
+        localizedReview.setSummary(localizedSummary(review, localizedContent));
+        localizedReview.setSlug(review.getSlug());
+        localizedReview.setProductName(review.getProductName());
+        localizedReview.setProductBrand(review.getProductBrand());
+        localizedReview.setRating(review.getRating());
+        localizedReview.setPros(orElse(localizedContent.getPros(), review.getPros()));
+        localizedReview.setCons(orElse(localizedContent.getCons(), review.getCons()));
+        localizedReview.setConclusion(orElse(localizedContent.getConclusion(), review.getConclusion()));
+        localizedReview.setSortOrder(review.getSortOrder());
+        localizedReview.setLocalizedContent(review.getLocalizedContent());
+        return localizedReview;
+    }
+
+    private static LocalizedContent translation(ContentItem item, String language) {
+        return item.getLocalizedContent() != null ? item.getLocalizedContent().get(language) : null;
+    }
+
+    private static String orElse(String localized, String base) {
+        return localized != null && !localized.isEmpty() ? localized : base;
+    }
+
+    /**
+     * Summary of the localized body, or of the base body when the translation has none
+     */
+    private static ContentSummary localizedSummary(ContentItem item, LocalizedContent localizedContent) {
+        ContentSummary summary = localizedContent.getSummary();
+        return summary != null && !summary.isEmpty() ? summary : item.getSummary();
+    }
+
+    /**
+     * Body of a localized copy, resolved only when a page renders it
+     */
+    private static ContentBodySource localizedBody(ContentItem item, LocalizedContent localizedContent) {
+        return new ContentBodySource() {
+            @Override
+            public String getContent() {
+                return orElse(localizedContent.getContent(), item.getContent());
+            }
+
+            @Override
+            public String getLocalizedContent(String language) {
+                LocalizedContent other = item.getLocalizedContent().get(language);
+                return other != null ? other.getContent() : null;
+            }
+
+            @Override
+            public String getRenderedContent() {
+                return orElse(localizedContent.getRenderedContent(), item.getRenderedContent());
+            }
+
+            @Override
+            public String getRenderedLocalizedContent(String language) {
+                LocalizedContent other = item.getLocalizedContent().get(language);
+                return other != null ? other.getRenderedContent() : null;
+            }
+        };
+    }
+}
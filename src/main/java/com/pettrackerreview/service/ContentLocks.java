@@ -0,0 +1,76 @@
+package com.pettrackerreview.service;
+
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped write locks keyed by content type and slug. Writes to different
+ * slugs usually take different stripes and run in parallel; a rename holds the
+ * stripes of both slugs. Stripes are always taken in index order, so two
+ * renames can never deadlock on each other.
+ */
+final class ContentLocks {
+
+    private final ReentrantLock[] stripes;
+
+    ContentLocks(int stripeCount) {
+        // Power of two so the stripe index is a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock the stripes of the given slugs; null slugs are skipped
+     */
+    Held lock(String type, String... slugs) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String slug : slugs) {
+            if (slug != null) {
+                indexes.add(stripeOf(type + "/" + slug));
+            }
+        }
+        ReentrantLock[] held = new ReentrantLock[indexes.size()];
+        int count = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                held[count++] = stripes[index];
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(held, count);
+            throw e;
+        }
+        return new Held(held);
+    }
+
+    private int stripeOf(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+
+    private static void unlock(ReentrantLock[] locks, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Stripes held by one write; released by close()
+     */
+    static final class Held implements AutoCloseable {
+        private final ReentrantLock[] locks;
+
+        private Held(ReentrantLock[] locks) {
+            this.locks = locks;
+        }
+
+        @Override
+        public void close() {
+            unlock(locks, locks.length);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+import java.time.ZoneOffset;
+
+/**
+ * Orderings every ContentIndex keeps a sorted list for. Each item maps to a
+ * {@link ListingKey} that is unique within the index (the slug breaks ties),
+ * which is what keyset cursors are built from.
+ */
+public enum ContentOrder {
+
+    /**
+     * Newest first; items without a date last
+     */
+    DATE("date") {
+        @Override
+        ListingKey keyOf(ContentItem item, double rating) {
+            return new ListingKey(newestFirst(item), 0, item.getSlug());
+        }
+    },
+
+    /**
+     * Highest sortOrder first, then newest first
+     */
+    SORT_ORDER("popular") {
+        @Override
+        ListingKey keyOf(ContentItem item, double rating) {
+            return new ListingKey(-(long) item.getSortOrder(), newestFirst(item), item.getSlug());
+        }
+    },
+
+    /**
+     * Highest rating first, then newest first (reviews; other items rate 0)
+     */
+    RATING("rating") {
+        @Override
+        ListingKey keyOf(ContentItem item, double rating) {
+            return new ListingKey(-Math.round(rating * 100), newestFirst(item), item.getSlug());
+        }
+    };
+
+    private final String param;
+
+    ContentOrder(String param) {
+        this.param = param;
+    }
+
+    abstract ListingKey keyOf(ContentItem item, double rating);
+
+    /**
+     * Value used for this order in ?sort=
+     */
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Parse a ?sort= value, falling back to the given order
+     */
+    public static ContentOrder parse(String value, ContentOrder fallback) {
+        if (value != null) {
+            for (ContentOrder order : values()) {
+                if (order.param.equalsIgnoreCase(value) || order.name().equalsIgnoreCase(value)) {
+                    return order;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private static long newestFirst(ContentItem item) {
+        return item.getDate() != null ? -item.getDate().toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+    }
+}
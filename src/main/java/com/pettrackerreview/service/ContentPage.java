@@ -0,0 +1,86 @@
+package com.pettrackerreview.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a listing, with the total it was cut from. Offset pages are
+ * numbered from 1; keyset pages also carry cursors for the neighboring pages.
+ */
+public final class ContentPage<T> {
+
+    private final List<T> items;
+    private final int offset;
+    private final int size;
+    private final int total;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    ContentPage(List<T> items, int offset, int size, int total, String nextCursor, String previousCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.offset = offset;
+        this.size = size;
+        this.total = total;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    /**
+     * Offset page of a list; page numbers start at 1 and out-of-range pages are empty
+     */
+    public static <T> ContentPage<T> of(List<T> list, int page, int size) {
+        int pageSize = Math.max(size, 1);
+        long from = (long) (Math.max(page, 1) - 1) * pageSize;
+        int start = (int) Math.min(from, list.size());
+        int end = Math.min(start + pageSize, list.size());
+        return new ContentPage<>(list.subList(start, end), start, pageSize, list.size(), null, null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * 1-based page number (for keyset pages, the page the first item falls on)
+     */
+    public int getPage() {
+        return offset / size + 1;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Number of items in the whole listing
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public int getTotalPages() {
+        return Math.max(1, (total + size - 1) / size);
+    }
+
+    public boolean hasNext() {
+        return offset + items.size() < total;
+    }
+
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    /**
+     * Cursor for the page after this one, or null for offset pages and the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Cursor for the page before this one, or null for offset pages and the first page
+     */
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+}
@@ -0,0 +1,141 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage for the YAML documents behind blog posts and reviews. Documents are
+ * addressed by their path under app.content.dir (blogs/slug.yaml,
+ * reviews/slug.yaml) whichever store holds them, so the parsed corpus, the
+ * snapshot and the export do not depend on the backend.
+ */
+public interface ContentRepository extends Closeable {
+
+    /**
+     * Short name for logs, e.g. "yaml" or "h2"
+     */
+    String getName();
+
+    /**
+     * Documents in a content directory with their size and modification time;
+     * the hash is included when the store keeps one
+     */
+    Map<File, ContentFileState> list(File directory) throws IOException;
+
+    /**
+     * Current state of a document, or null if it does not exist
+     */
+    ContentFileState stat(File document) throws IOException;
+
+    /**
+     * Raw YAML of a document, or null if it does not exist
+     */
+    byte[] read(File document) throws IOException;
+
+    /**
+     * Hex SHA-256 of a document, or null if it does not exist
+     */
+    String version(File document) throws IOException;
+
+    /**
+     * Prepare a write that becomes visible only on {@link StagedWrite#commit}
+     * and durable on the next {@link #sync}
+     * @param item the parsed document, whose slug, date, sort order and tags a
+     *             store with query columns records in the same commit; null for
+     *             documents that are not published content (drafts)
+     */
+    StagedWrite stage(File document, byte[] content, ContentItem item) throws IOException;
+
+    /**
+     * Remove a document; durable on the next {@link #sync}
+     */
+    void delete(File document) throws IOException;
+
+    /**
+     * Make committed writes and deletes in the directory durable. Batches call
+     * this once at the end rather than once per document.
+     */
+    void sync(File directory) throws IOException;
+
+    /**
+     * Finish or roll back writes that a crash interrupted in the directory.
+     * Called once at startup, before the directory is first listed.
+     */
+    default void recover(File directory) throws IOException {
+    }
+
+    /**
+     * Document of the item with the slug, or null if there is none. Documents
+     * are saved as slug.yaml, which is all a store without a slug column can check.
+     */
+    default File findBySlug(File directory, String slug) throws IOException {
+        File document = new File(directory, slug + ".yaml");
+        return stat(document) != null ? document : null;
+    }
+
+    /**
+     * Documents newest first (undated last, then by sort order), or null if
+     * the store keeps no date column and callers have to sort the items
+     */
+    default List<File> listNewestFirst(File directory) throws IOException {
+        return null;
+    }
+
+    /**
+     * Documents whose item carries the tag, or null if the store keeps no tag index
+     */
+    default Set<File> findByTag(File directory, String tag) throws IOException {
+        return null;
+    }
+
+    /**
+     * Documents stored without their query columns (written before the store
+     * kept them), to be passed to {@link #index} once parsed
+     */
+    default Set<File> unindexed(File directory) throws IOException {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Record the query columns of a stored document from its parsed item
+     */
+    default void index(File document, ContentItem item) throws IOException {
+    }
+
+    /**
+     * True if documents can change outside this application, so they need watching
+     */
+    boolean isExternallyModifiable();
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * A write prepared outside any lock; commit() is cheap, and the new
+     * document becomes visible atomically
+     */
+    interface StagedWrite extends Closeable {
+
+        /**
+         * Publish the document, then remove the replaced one (if not null).
+         * The two steps need not be atomic together: a store that can crash
+         * between them records the rename first, and {@link #recover} removes
+         * the leftover on the next start.
+         */
+        void commit(File replaced) throws IOException;
+
+        /**
+         * Discard the write if it was not committed
+         */
+        @Override
+        void close() throws IOException;
+    }
+}
@@ -0,0 +1,157 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish and unpublish instants of scheduled content in a priority queue. A
+ * single timer is armed for the earliest instant only; when it fires the owner
+ * takes the due changes and republishes, so nothing polls and no cache expires
+ * on a guess.
+ * <p>
+ * An item is live from its {@code date} (immediately if unset) until its
+ * {@code unpublishDate} (forever if unset).
+ */
+final class ContentSchedule {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentSchedule.class);
+
+    private final PriorityQueue<Change> queue = new PriorityQueue<>();
+    private final ScheduledExecutorService timer;
+    private final Runnable onDue;
+
+    private ScheduledFuture<?> armed;
+    private long armedAt;
+
+    /**
+     * @param onDue called on the timer thread when the earliest change is due
+     */
+    ContentSchedule(Runnable onDue) {
+        this.onDue = onDue;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-schedule");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static boolean isLive(ContentItem item, LocalDateTime now) {
+        return (item.getDate() == null || !item.getDate().isAfter(now))
+                && (item.getUnpublishDate() == null || item.getUnpublishDate().isAfter(now));
+    }
+
+    /**
+     * Replace the queue with the future changes of the given items and re-arm the timer
+     */
+    synchronized void reset(String type, Iterable<? extends ContentItem> items, LocalDateTime now) {
+        queue.removeIf(change -> change.type.equals(type));
+        for (ContentItem item : items) {
+            if (item.getDate() != null && item.getDate().isAfter(now)) {
+                queue.add(new Change(type, item, true, item.getDate()));
+            }
+            if (item.getUnpublishDate() != null && item.getUnpublishDate().isAfter(now)) {
+                queue.add(new Change(type, item, false, item.getUnpublishDate()));
+            }
+        }
+        arm();
+    }
+
+    /**
+     * Remove and return the changes due at or before now
+     */
+    synchronized List<Change> takeDue(LocalDateTime now) {
+        List<Change> due = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().at.isAfter(now)) {
+            due.add(queue.poll());
+        }
+        arm();
+        return due;
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void arm() {
+        Change next = queue.peek();
+        if (next == null) {
+            cancel();
+            return;
+        }
+        long at = next.at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (armed != null && !armed.isDone() && armedAt == at) {
+            return;
+        }
+        cancel();
+        armedAt = at;
+        armed = timer.schedule(this::fire, Math.max(0, at - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancel() {
+        if (armed != null) {
+            armed.cancel(false);
+            armed = null;
+        }
+    }
+
+    private void fire() {
+        synchronized (this) {
+            // This run is over as far as arm() is concerned, even if it fired a moment early
+            armed = null;
+        }
+        try {
+            onDue.run();
+        } catch (RuntimeException e) {
+            logger.error("Error applying scheduled content changes", e);
+        }
+    }
+
+    /**
+     * One publish or unpublish of an item
+     */
+    static final class Change implements Comparable<Change> {
+        private final String type;
+        private final ContentItem item;
+        private final boolean publish;
+        private final LocalDateTime at;
+
+        private Change(String type, ContentItem item, boolean publish, LocalDateTime at) {
+            this.type = type;
+            this.item = item;
+            this.publish = publish;
+            this.at = at;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        ContentItem getItem() {
+            return item;
+        }
+
+        boolean isPublish() {
+            return publish;
+        }
+
+        LocalDateTime getAt() {
+            return at;
+        }
+
+        @Override
+        public int compareTo(Change other) {
+            return at.compareTo(other.at);
+        }
+    }
+}
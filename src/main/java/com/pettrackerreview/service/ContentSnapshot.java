@@ -0,0 +1,84 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.Review;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable in-memory copy of all published content with its indexes.
+ * YamlContentService builds a new snapshot on every reload and swaps it in
+ * atomically, so readers always see one consistent version without locking.
+ */
+public final class ContentSnapshot {
+
+    // Languages offered by the site; each gets a pre-localized view of the content
+    public static final List<String> LANGUAGES = Collections.unmodifiableList(Arrays.asList("en", "de", "fr", "es", "ja"));
+
+    public static final ContentSnapshot EMPTY =
+            new ContentSnapshot(Collections.<BlogPost>emptyList(), Collections.<Review>emptyList());
+
+    private final ContentIndex<BlogPost> blogPosts;
+    private final ContentIndex<Review> reviews;
+    private final Map<String, ContentIndex<BlogPost>> localizedBlogPosts;
+    private final Map<String, ContentIndex<Review>> localizedReviews;
+    private final Set<String> allTags;
+    private final long createdAt;
+
+    public ContentSnapshot(Collection<BlogPost> blogPosts, Collection<Review> reviews) {
+        this.blogPosts = new ContentIndex<>(blogPosts);
+        this.reviews = new ContentIndex<>(reviews, Review::getProductBrand, Review::getRating);
+
+        Map<String, ContentIndex<BlogPost>> blogViews = new HashMap<>();
+        Map<String, ContentIndex<Review>> reviewViews = new HashMap<>();
+        for (String language : LANGUAGES) {
+            blogViews.put(language, this.blogPosts.localized(post -> ContentLocalizer.localize(post, language)));
+            reviewViews.put(language, this.reviews.localized(review -> ContentLocalizer.localize(review, language)));
+        }
+        this.localizedBlogPosts = Collections.unmodifiableMap(blogViews);
+        this.localizedReviews = Collections.unmodifiableMap(reviewViews);
+
+        Set<String> tags = new HashSet<>(this.blogPosts.tags());
+        tags.addAll(this.reviews.tags());
+        this.allTags = Collections.unmodifiableSet(tags);
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public ContentIndex<BlogPost> getBlogPosts() {
+        return blogPosts;
+    }
+
+    public ContentIndex<Review> getReviews() {
+        return reviews;
+    }
+
+    /**
+     * Blog posts with titles, meta fields and bodies resolved for the language;
+     * the base index for languages without a view
+     */
+    public ContentIndex<BlogPost> getBlogPosts(String language) {
+        return localizedBlogPosts.getOrDefault(language, blogPosts);
+    }
+
+    public ContentIndex<Review> getReviews(String language) {
+        return localizedReviews.getOrDefault(language, reviews);
+    }
+
+    /**
+     * Tags used by at least one blog post or review
+     */
+    public Set<String> getAllTags() {
+        return allTags;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
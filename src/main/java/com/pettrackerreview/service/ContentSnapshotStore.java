@@ -0,0 +1,286 @@
+package com.pettrackerreview.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentSummary;
+import com.pettrackerreview.model.LocalizedContent;
+import com.pettrackerreview.model.Review;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Persists the parsed content as a compact Smile (binary JSON) file so a restart
+ * only has to re-parse YAML files that changed while the application was down.
+ */
+@Component
+public class ContentSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentSnapshotStore.class);
+
+    // Bump when the model changes in a way old snapshots cannot be read back correctly
+    static final int FORMAT_VERSION = 3;
+
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    private ObjectMapper smileMapper;
+
+    @Value("${app.content.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.content.snapshot.file:}")
+    private String snapshotFile;
+
+    @Value("${app.content.dir:src/main/resources}")
+    private String contentDir;
+    
+    @Autowired
+    private ContentBodyStore bodyStore;
+
+    private ScheduledExecutorService writer;
+    private ScheduledFuture<?> pendingSave;
+    private Supplier<PersistedContent> lastSource;
+
+    @PostConstruct
+    public void init() {
+        smileMapper = new ObjectMapper(new SmileFactory());
+        smileMapper.registerModule(new JavaTimeModule());
+        smileMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        // Bodies are read from the YAML files on demand when lazy, keep them out of the snapshot
+        Class<?> mixin = bodyStore.isLazy() ? WithoutBody.class : WithSummary.class;
+        smileMapper.addMixIn(BlogPost.class, mixin);
+        smileMapper.addMixIn(Review.class, mixin);
+        smileMapper.addMixIn(LocalizedContent.class, mixin);
+
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        // Write any pending change now so the next start is warm
+        if (pendingSave != null && pendingSave.cancel(false) && lastSource != null) {
+            write(lastSource.get());
+        }
+        writer.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Read the snapshot written by a previous run
+     * @return persisted content, or null if there is none or it cannot be used
+     */
+    public PersistedContent read() {
+        File file = getFile();
+        if (!enabled || !file.isFile()) {
+            return null;
+        }
+        try {
+            PersistedContent content = smileMapper.readValue(file, PersistedContent.class);
+            if (content.getFormatVersion() != FORMAT_VERSION) {
+                logger.info("Ignoring content snapshot with format version {}", content.getFormatVersion());
+                return null;
+            }
+            if (!content.isBodiesIncluded() && !bodyStore.isLazy()) {
+                logger.info("Ignoring content snapshot written without article bodies");
+                return null;
+            }
+            return content;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable content snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the snapshot a few seconds from now, coalescing bursts of changes into one write
+     */
+    public synchronized void scheduleSave(Supplier<PersistedContent> source) {
+        if (!enabled) {
+            return;
+        }
+        lastSource = source;
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        pendingSave = writer.schedule(() -> write(source.get()), SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void write(PersistedContent content) {
+        File file = getFile();
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            long start = System.currentTimeMillis();
+            content.setBodiesIncluded(!bodyStore.isLazy());
+            smileMapper.writeValue(temp, content);
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Wrote content snapshot with {} blog post(s) and {} review(s) in {} ms ({} bytes)",
+                    content.getBlogPosts().size(), content.getReviews().size(),
+                    System.currentTimeMillis() - start, file.length());
+        } catch (IOException e) {
+            logger.warn("Could not write content snapshot {}: {}", file, e.getMessage());
+            temp.delete();
+        }
+    }
+
+    private File getFile() {
+        if (snapshotFile != null && !snapshotFile.trim().isEmpty()) {
+            return new File(snapshotFile);
+        }
+        return new File(contentDir, ".content-snapshot.smile");
+    }
+
+    /**
+     * Summaries are derived from the bodies, so they are kept in the snapshot
+     * (bodies may not be) but never in the YAML files
+     */
+    private abstract static class WithSummary {
+        @JsonIgnore(false)
+        abstract ContentSummary getSummary();
+
+        @JsonIgnore(false)
+        abstract void setSummary(ContentSummary summary);
+    }
+
+    @JsonIgnoreProperties({"content"})
+    private abstract static class WithoutBody extends WithSummary {
+    }
+
+    /**
+     * Everything written to the snapshot file
+     */
+    public static class PersistedContent {
+        private int formatVersion = FORMAT_VERSION;
+        private boolean bodiesIncluded = true;
+        private List<PersistedEntry<BlogPost>> blogPosts = new ArrayList<>();
+        private List<PersistedEntry<Review>> reviews = new ArrayList<>();
+
+        public int getFormatVersion() {
+            return formatVersion;
+        }
+
+        public void setFormatVersion(int formatVersion) {
+            this.formatVersion = formatVersion;
+        }
+
+        /**
+         * False if the items were written without their bodies (lazy bodies enabled)
+         */
+        public boolean isBodiesIncluded() {
+            return bodiesIncluded;
+        }
+
+        public void setBodiesIncluded(boolean bodiesIncluded) {
+            this.bodiesIncluded = bodiesIncluded;
+        }
+
+        public List<PersistedEntry<BlogPost>> getBlogPosts() {
+            return blogPosts;
+        }
+
+        public void setBlogPosts(List<PersistedEntry<BlogPost>> blogPosts) {
+            this.blogPosts = blogPosts;
+        }
+
+        public List<PersistedEntry<Review>> getReviews() {
+            return reviews;
+        }
+
+        public void setReviews(List<PersistedEntry<Review>> reviews) {
+            this.reviews = reviews;
+        }
+    }
+
+    /**
+     * One parsed source file, keyed by file name, size, mtime and content hash
+     */
+    public static class PersistedEntry<T> {
+        private String fileName;
+        private long size;
+        private long lastModified;
+        private String hash;
+        private T item;
+
+        public PersistedEntry() {}
+
+        public PersistedEntry(String fileName, ContentFileState state, T item) {
+            this.fileName = fileName;
+            this.size = state.getSize();
+            this.lastModified = state.getLastModified();
+            this.hash = state.getHash();
+            this.item = item;
+        }
+
+        public ContentFileState toState() {
+            return new ContentFileState(size, lastModified, hash);
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public void setFileName(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public void setItem(T item) {
+            this.item = item;
+        }
+    }
+}
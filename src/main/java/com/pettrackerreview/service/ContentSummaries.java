@@ -0,0 +1,123 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.model.ContentSummary;
+import com.pettrackerreview.model.LocalizedContent;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Derives {@link ContentSummary} values from HTML bodies. Runs when content is
+ * parsed or saved; restored items carry theirs in the snapshot, so templates
+ * only read the precomputed fields.
+ */
+final class ContentSummaries {
+
+    static final int EXCERPT_LENGTH = 200;
+
+    // Latin-script reading speed, and characters per minute for CJK text
+    private static final int WORDS_PER_MINUTE = 200;
+    private static final int CJK_CHARS_PER_MINUTE = 500;
+
+    private static final Pattern HIDDEN = Pattern.compile("(?is)<(script|style)[^>]*>.*?</\\1\\s*>");
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private ContentSummaries() {
+    }
+
+    /**
+     * Summarize the item's body and each localized body
+     */
+    static void apply(ContentItem item) {
+        item.setSummary(summarize(item.getContent()));
+        if (item.getLocalizedContent() != null) {
+            for (LocalizedContent localized : item.getLocalizedContent().values()) {
+                localized.setSummary(summarize(localized.getContent()));
+            }
+        }
+    }
+
+    /**
+     * Set summaries computed while parsing, keyed by language ("" for the main body)
+     */
+    static void apply(ContentItem item, Map<String, ContentSummary> summaries) {
+        item.setSummary(summaries.getOrDefault("", ContentSummary.EMPTY));
+        if (item.getLocalizedContent() != null) {
+            item.getLocalizedContent().forEach((language, localized) ->
+                    localized.setSummary(summaries.getOrDefault(language, ContentSummary.EMPTY)));
+        }
+    }
+
+    static ContentSummary summarize(String html) {
+        if (html == null || html.isEmpty()) {
+            return ContentSummary.EMPTY;
+        }
+        String text = HIDDEN.matcher(html).replaceAll(" ");
+        text = TAG.matcher(text).replaceAll(" ");
+        text = WHITESPACE.matcher(HtmlUtils.htmlUnescape(text)).replaceAll(" ").trim();
+        if (text.isEmpty()) {
+            return ContentSummary.EMPTY;
+        }
+
+        int words = 0;
+        int cjk = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                cjk++;
+                inWord = false;
+            } else if (Character.isWhitespace(c)) {
+                inWord = false;
+            } else if (!inWord) {
+                words++;
+                inWord = true;
+            }
+        }
+        double minutes = (double) words / WORDS_PER_MINUTE + (double) cjk / CJK_CHARS_PER_MINUTE;
+        return new ContentSummary(excerpt(text), words + cjk, Math.max(1, (int) Math.ceil(minutes)), terms(text));
+    }
+
+    /**
+     * Distinct lower-case words in first-seen order, so search can match the
+     * body without reading it back from disk
+     */
+    private static String terms(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : ContentSummary.TERM_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    /**
+     * First EXCERPT_LENGTH characters, backing off to the last space when it is close
+     */
+    private static String excerpt(String text) {
+        if (text.length() <= EXCERPT_LENGTH) {
+            return text;
+        }
+        int end = EXCERPT_LENGTH - 3;
+        int space = text.lastIndexOf(' ', end);
+        if (space > end - 40) {
+            end = space;
+        }
+        return text.substring(0, end) + "...";
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+}
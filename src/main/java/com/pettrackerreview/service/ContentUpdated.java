@@ -0,0 +1,13 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+
+/**
+ * A visible item was replaced by a new version with the same slug
+ */
+public class ContentUpdated extends ContentEvent {
+
+    public ContentUpdated(String type, ContentItem oldItem, ContentItem newItem) {
+        super(type, oldItem, newItem);
+    }
+}
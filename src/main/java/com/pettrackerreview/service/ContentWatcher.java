@@ -0,0 +1,184 @@
+package com.pettrackerreview.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the blog and review directories and patches the loaded content when
+ * files are created, modified or deleted outside the admin (e.g. rsync deploys).
+ * A periodic size/mtime scan (plus a hash check of just-written files) backs up the WatchService, which can miss events
+ * on some file systems or drop them on overflow.
+ */
+@Component
+public class ContentWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentWatcher.class);
+
+    // Wait a little after the first event so a burst of writes is applied together
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    @Autowired
+    private YamlContentService contentService;
+
+    @Autowired
+    private ContentRepository repository;
+
+    @Autowired
+    private ContentBodyStore bodyStore;
+
+    @Value("${app.content.watch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.content.watch.scan-interval-seconds:30}")
+    private long scanIntervalSeconds;
+
+    private WatchService watchService;
+    private ScheduledExecutorService scanner;
+    private Thread watchThread;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Content watcher disabled");
+            return;
+        }
+        if (!repository.isExternallyModifiable()) {
+            logger.info("Content watcher not needed for the {} repository", repository.getName());
+            return;
+        }
+
+        scanner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A lazy body read found its document newer than the loaded item
+        bodyStore.setStaleListener(file -> scanner.execute(() -> refresh(Collections.singleton(file))));
+        if (scanIntervalSeconds > 0) {
+            scanner.scheduleWithFixedDelay(this::scan, scanIntervalSeconds, scanIntervalSeconds, TimeUnit.SECONDS);
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            register(contentService.getBlogsDirectory());
+            register(contentService.getReviewsDirectory());
+            watchThread = new Thread(this::watchLoop, "content-watcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        } catch (IOException e) {
+            logger.warn("WatchService unavailable, relying on periodic scan: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing WatchService", e);
+            }
+        }
+    }
+
+    private void register(File directory) throws IOException {
+        directory.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void watchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Thread.sleep(DEBOUNCE_MILLIS);
+
+                Set<File> changed = new HashSet<>();
+                boolean overflow = false;
+                while (key != null) {
+                    overflow |= collect(key, changed);
+                    key = watchService.poll();
+                }
+
+                if (overflow) {
+                    scanner.execute(this::scan);
+                } else if (!changed.isEmpty()) {
+                    scanner.execute(() -> refresh(changed));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * @return true if events were lost and a full scan is needed
+     */
+    private boolean collect(WatchKey key, Set<File> changed) {
+        boolean overflow = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path name = (Path) event.context();
+            if (YamlContentLoader.isYamlFile(name.toString())) {
+                changed.add(directory.resolve(name).toFile());
+            }
+        }
+        if (!key.reset()) {
+            logger.warn("Stopped watching {}", directory);
+        }
+        return overflow;
+    }
+
+    private void refresh(Set<File> files) {
+        try {
+            int changed = contentService.refreshFiles(files);
+            if (changed > 0) {
+                logger.info("Reloaded {} changed content file(s)", changed);
+            }
+        } catch (Exception e) {
+            logger.error("Error applying content changes", e);
+        }
+    }
+
+    private void scan() {
+        try {
+            int changed = contentService.rescanContent();
+            if (changed > 0) {
+                logger.info("Periodic scan reloaded {} changed content file(s)", changed);
+            }
+        } catch (Exception e) {
+            logger.error("Error scanning content directories", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.pettrackerreview.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe file replacement: write a temp file, fsync it, atomically move it
+ * over the target, then fsync the directory so the rename itself survives a
+ * crash. A reader sees either the old file or the complete new one.
+ */
+final class DurableFiles {
+
+    static final String RENAME_SUFFIX = ".rename";
+
+    private DurableFiles() {
+    }
+
+    /**
+     * Temp file next to the target; its name does not end in .yaml, so the
+     * loader and the watcher ignore it
+     */
+    static Path tempFileFor(Path target) {
+        return target.resolveSibling("." + target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Marker next to the target recording the file it replaces under another
+     * name; like the temp file, it is ignored by the loader and the watcher
+     */
+    static Path renameMarkerFor(Path target) {
+        return target.resolveSibling("." + target.getFileName() + RENAME_SUFFIX);
+    }
+
+    /**
+     * Write the bytes and force them to disk
+     */
+    static void writeSynced(Path path, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Atomically replace the target with an already synced temp file
+     */
+    static void replace(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Write, sync and move into place, then sync the directory
+     */
+    static void write(Path target, byte[] bytes) throws IOException {
+        Path temp = tempFileFor(target);
+        try {
+            writeSynced(temp, bytes);
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Persist renames and deletes in the directory. Platforms that cannot open
+     * a directory for sync (Windows) skip this; their rename is already durable.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.pettrackerreview.service;
+
+import java.util.*;
+
+/**
+ * Brand and rating bitsets over item ordinals (date order), used together
+ * with the tag bitsets to filter listings without scanning the items.
+ * Plain BitSets, unlike the tag postings in {@link TagIndex}: every review has
+ * one brand and there are a few dozen makers, and the rating sets are
+ * cumulative over the few dozen distinct one-decimal values, so each set covers a real
+ * share of the items and is at most items/8 bytes (about 6 KB at 50,000).
+ */
+final class FacetIndex {
+
+    private final Map<String, BitSet> brands;
+    private final Map<String, Integer> brandCounts;
+
+    // Distinct ratings, highest first, and the items rated at least that much
+    private final double[] ratings;
+    private final BitSet[] ratedAtLeast;
+
+    /**
+     * @param brands brand of each item, null if it has none
+     * @param ratings rating of each item
+     */
+    FacetIndex(List<String> brands, double[] ratings) {
+        int size = brands.size();
+        Map<String, BitSet> byBrand = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (brands.get(i) != null) {
+                byBrand.computeIfAbsent(brands.get(i), k -> new BitSet(size)).set(i);
+            }
+        }
+        this.brands = Collections.unmodifiableMap(byBrand);
+
+        List<String> names = new ArrayList<>(byBrand.keySet());
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String name : names) {
+            counts.put(name, byBrand.get(name).cardinality());
+        }
+        this.brandCounts = Collections.unmodifiableMap(counts);
+
+        TreeMap<Double, BitSet> byRating = new TreeMap<>(Comparator.reverseOrder());
+        for (int i = 0; i < size; i++) {
+            byRating.computeIfAbsent(ratings[i], k -> new BitSet(size)).set(i);
+        }
+        this.ratings = new double[byRating.size()];
+        this.ratedAtLeast = new BitSet[byRating.size()];
+        BitSet cumulative = new BitSet(size);
+        int k = 0;
+        for (Map.Entry<Double, BitSet> entry : byRating.entrySet()) {
+            cumulative.or(entry.getValue());
+            this.ratings[k] = entry.getKey();
+            this.ratedAtLeast[k] = (BitSet) cumulative.clone();
+            k++;
+        }
+    }
+
+    /**
+     * Items of the brand; empty for unknown brands. Shared, do not modify.
+     */
+    BitSet brand(String brand) {
+        BitSet items = brands.get(brand);
+        return items != null ? items : new BitSet();
+    }
+
+    /**
+     * Items rated at least minRating. Shared, do not modify.
+     */
+    BitSet ratedAtLeast(double minRating) {
+        // ratings are descending, so the last one still >= minRating has the widest set
+        int match = -1;
+        for (int k = 0; k < ratings.length && ratings[k] >= minRating; k++) {
+            match = k;
+        }
+        return match >= 0 ? ratedAtLeast[match] : new BitSet();
+    }
+
+    /**
+     * Item count per brand, by name
+     */
+    Map<String, Integer> brandCounts() {
+        return brandCounts;
+    }
+}
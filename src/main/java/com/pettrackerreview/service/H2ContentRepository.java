@@ -0,0 +1,339 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Documents in an embedded, file-backed H2 database. Each row keeps the YAML
+ * as written plus indexed columns for slug, date and sort order, and tags go
+ * to their own indexed table, all written in the document's transaction. The
+ * public site reads the in-memory {@link ContentIndex} of the published
+ * snapshot; the columns answer the admin's lookups over every stored item,
+ * published or not, without parsing or sorting. Nothing outside the
+ * application writes the database, so it needs no watching.
+ */
+public class H2ContentRepository implements ContentRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2ContentRepository.class);
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS content_document ("
+            + "directory VARCHAR(64) NOT NULL, "
+            + "name VARCHAR(255) NOT NULL, "
+            + "slug VARCHAR(255), "
+            + "published_at TIMESTAMP, "
+            + "sort_order INT NOT NULL DEFAULT 0, "
+            + "size BIGINT NOT NULL, "
+            + "updated_at BIGINT NOT NULL, "
+            + "hash CHAR(64) NOT NULL, "
+            + "content BLOB NOT NULL, "
+            + "PRIMARY KEY (directory, name))",
+        // Databases created without the query columns get them back; their rows are re-indexed at startup
+        "ALTER TABLE content_document ADD COLUMN IF NOT EXISTS slug VARCHAR(255)",
+        "ALTER TABLE content_document ADD COLUMN IF NOT EXISTS published_at TIMESTAMP",
+        "ALTER TABLE content_document ADD COLUMN IF NOT EXISTS sort_order INT NOT NULL DEFAULT 0",
+        "CREATE INDEX IF NOT EXISTS content_document_slug ON content_document (directory, slug)",
+        "CREATE INDEX IF NOT EXISTS content_document_date ON content_document (directory, published_at DESC)",
+        "CREATE INDEX IF NOT EXISTS content_document_sort ON content_document (directory, sort_order DESC)",
+        "CREATE TABLE IF NOT EXISTS content_tag ("
+            + "directory VARCHAR(64) NOT NULL, "
+            + "name VARCHAR(255) NOT NULL, "
+            + "tag VARCHAR(255) NOT NULL, "
+            + "PRIMARY KEY (directory, name, tag))",
+        "CREATE INDEX IF NOT EXISTS content_tag_tag ON content_tag (directory, tag)"
+    };
+
+    private final JdbcConnectionPool pool;
+
+    /**
+     * @param databaseFile database path without the .mv.db extension
+     */
+    public H2ContentRepository(File databaseFile) throws IOException {
+        this.pool = JdbcConnectionPool.create("jdbc:h2:file:" + databaseFile.getAbsolutePath(), "sa", "");
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        } catch (SQLException e) {
+            pool.dispose();
+            throw new IOException("Could not open content database " + databaseFile + ": " + e.getMessage(), e);
+        }
+        logger.info("Content repository: H2 database {}.mv.db", databaseFile.getAbsolutePath());
+    }
+
+    @Override
+    public String getName() {
+        return "h2";
+    }
+
+    @Override
+    public Map<File, ContentFileState> list(File directory) throws IOException {
+        Map<File, ContentFileState> documents = new LinkedHashMap<>();
+        String sql = "SELECT name, size, updated_at, hash FROM content_document "
+                + "WHERE directory = ? ORDER BY name";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, directory.getName());
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    documents.put(new File(directory, rows.getString(1)),
+                            new ContentFileState(rows.getLong(2), rows.getLong(3), rows.getString(4)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not list " + directory.getName() + ": " + e.getMessage(), e);
+        }
+        return documents;
+    }
+
+    @Override
+    public ContentFileState stat(File document) throws IOException {
+        String sql = "SELECT size, updated_at, hash FROM content_document WHERE directory = ? AND name = ?";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = prepare(connection, sql, document);
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? new ContentFileState(rows.getLong(1), rows.getLong(2), rows.getString(3)) : null;
+        } catch (SQLException e) {
+            throw new IOException("Could not read " + document.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public byte[] read(File document) throws IOException {
+        String sql = "SELECT content FROM content_document WHERE directory = ? AND name = ?";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = prepare(connection, sql, document);
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? rows.getBytes(1) : null;
+        } catch (SQLException e) {
+            throw new IOException("Could not read " + document.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String version(File document) throws IOException {
+        ContentFileState state = stat(document);
+        return state != null ? state.getHash() : null;
+    }
+
+    @Override
+    public StagedWrite stage(File document, byte[] content, ContentItem item) {
+        // Nothing to prepare: the row and its tags are written in one transaction on commit
+        String hash = YamlContentLoader.hash(content);
+        return new StagedWrite() {
+            @Override
+            public void commit(File replaced) throws IOException {
+                try (Connection connection = pool.getConnection()) {
+                    connection.setAutoCommit(false);
+                    try {
+                        if (replaced != null) {
+                            deleteRows(connection, replaced);
+                        }
+                        deleteRows(connection, document);
+                        insertRow(connection, document, content, hash);
+                        if (item != null) {
+                            writeIndex(connection, document, item);
+                        }
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    }
+                } catch (SQLException e) {
+                    throw new IOException("Could not write " + document.getName() + ": " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public File findBySlug(File directory, String slug) throws IOException {
+        List<File> documents = query(directory, "SELECT name FROM content_document "
+                + "WHERE directory = ? AND slug = ? ORDER BY name", slug);
+        return documents.isEmpty() ? null : documents.get(0);
+    }
+
+    @Override
+    public List<File> listNewestFirst(File directory) throws IOException {
+        return query(directory, "SELECT name FROM content_document WHERE directory = ? "
+                + "ORDER BY published_at DESC NULLS LAST, sort_order DESC, name", null);
+    }
+
+    @Override
+    public Set<File> findByTag(File directory, String tag) throws IOException {
+        return new LinkedHashSet<>(query(directory, "SELECT name FROM content_tag "
+                + "WHERE directory = ? AND tag = ? ORDER BY name", tag));
+    }
+
+    @Override
+    public Set<File> unindexed(File directory) throws IOException {
+        return new LinkedHashSet<>(query(directory, "SELECT name FROM content_document "
+                + "WHERE directory = ? AND slug IS NULL ORDER BY name", null));
+    }
+
+    @Override
+    public void index(File document, ContentItem item) throws IOException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                writeIndex(connection, document, item);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not index " + document.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(File document) throws IOException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                deleteRows(connection, document);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not delete " + document.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Force committed transactions to disk. H2 has one store for all
+     * directories, so a batch touching both syncs twice at most.
+     */
+    @Override
+    public void sync(File directory) throws IOException {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT SYNC");
+        } catch (SQLException e) {
+            throw new IOException("Could not sync content database: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isExternallyModifiable() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, File document) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setString(1, document.getParentFile().getName());
+        statement.setString(2, document.getName());
+        return statement;
+    }
+
+    /**
+     * Names in the directory returned by a query on directory and an optional second parameter
+     */
+    private List<File> query(File directory, String sql, String parameter) throws IOException {
+        List<File> documents = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, directory.getName());
+            if (parameter != null) {
+                statement.setString(2, parameter);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    documents.add(new File(directory, rows.getString(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not query " + directory.getName() + ": " + e.getMessage(), e);
+        }
+        return documents;
+    }
+
+    private static void deleteRows(Connection connection, File document) throws SQLException {
+        for (String sql : new String[] {
+                "DELETE FROM content_tag WHERE directory = ? AND name = ?",
+                "DELETE FROM content_document WHERE directory = ? AND name = ?"}) {
+            try (PreparedStatement statement = prepare(connection, sql, document)) {
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Set the slug, date and sort order columns of the row and replace its tags
+     */
+    private static void writeIndex(Connection connection, File document, ContentItem item) throws SQLException {
+        String directory = document.getParentFile().getName();
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE content_document "
+                + "SET slug = ?, published_at = ?, sort_order = ? WHERE directory = ? AND name = ?")) {
+            // Migrated documents are parsed without filling in a missing slug
+            statement.setString(1, item.generateSlug());
+            statement.setTimestamp(2, item.getDate() != null ? Timestamp.valueOf(item.getDate()) : null);
+            statement.setInt(3, item.getSortOrder());
+            statement.setString(4, directory);
+            statement.setString(5, document.getName());
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = prepare(connection,
+                "DELETE FROM content_tag WHERE directory = ? AND name = ?", document)) {
+            statement.executeUpdate();
+        }
+        Set<String> tags = item.getTags() != null ? new LinkedHashSet<>(item.getTags()) : new LinkedHashSet<>();
+        tags.remove(null);
+        if (tags.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO content_tag (directory, name, tag) VALUES (?, ?, ?)")) {
+            for (String tag : tags) {
+                statement.setString(1, directory);
+                statement.setString(2, document.getName());
+                statement.setString(3, tag);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void insertRow(Connection connection, File document, byte[] content, String hash)
+            throws SQLException {
+        String sql = "INSERT INTO content_document (directory, name, size, updated_at, hash, content) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, document.getParentFile().getName());
+            statement.setString(2, document.getName());
+            statement.setLong(3, content.length);
+            statement.setLong(4, System.currentTimeMillis());
+            statement.setString(5, hash);
+            statement.setBytes(6, content);
+            statement.executeUpdate();
+        }
+    }
+}
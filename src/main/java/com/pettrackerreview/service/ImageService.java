@@ -67,6 +67,9 @@ public class ImageService {
     private String absoluteUploadDir;
     private String absoluteMetadataDir;
     
+    // Images by web path, rebuilt on first use after any metadata change
+    private volatile Map<String, Image> imagesByPath;
+    
     public ImageService() {
         this.yamlMapper = new ObjectMapper(new YAMLFactory());
         
@@ -382,6 +385,28 @@ public class ImageService {
         return images;
     }
     
+    /**
+     * Images keyed by web path (uploads/images/...), used to resolve images referenced from content
+     */
+    public Map<String, Image> getImagesByPath() {
+        Map<String, Image> byPath = imagesByPath;
+        if (byPath == null) {
+            Map<String, Image> images = new HashMap<>();
+            for (Image image : getAllImages()) {
+                if (StringUtils.isNotBlank(image.getFilePath())) {
+                    images.put(image.getFilePath(), image);
+                }
+            }
+            byPath = Collections.unmodifiableMap(images);
+            imagesByPath = byPath;
+        }
+        return byPath;
+    }
+    
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+    
     /**
      * Get image by ID
      */
@@ -441,6 +466,7 @@ public class ImageService {
         } else {
             System.out.println("Metadata file not found: " + metadataPath);
         }
+        imagesByPath = null;
     }
     
     /**
@@ -522,6 +548,7 @@ public class ImageService {
     
     private void saveImageMetadata(Image image) throws IOException {
         Path metadataPath = Paths.get(absoluteMetadataDir, image.getId() + ".yaml");
-        yamlMapper.writeValue(metadataPath.toFile(), image);
+        DurableFiles.write(metadataPath, yamlMapper.writeValueAsBytes(image));
+        imagesByPath = null;
     }
 }
\ No newline at end of file
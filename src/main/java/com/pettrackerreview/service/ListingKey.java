@@ -0,0 +1,54 @@
+package com.pettrackerreview.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of an item in one {@link ContentOrder}: ascending on primary, then
+ * secondary, then slug. Encoded into an opaque string for keyset cursors.
+ */
+final class ListingKey implements Comparable<ListingKey> {
+
+    private final long primary;
+    private final long secondary;
+    private final String slug;
+
+    ListingKey(long primary, long secondary, String slug) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.slug = slug != null ? slug : "";
+    }
+
+    @Override
+    public int compareTo(ListingKey other) {
+        int result = Long.compare(primary, other.primary);
+        if (result == 0) {
+            result = Long.compare(secondary, other.secondary);
+        }
+        return result != 0 ? result : slug.compareTo(other.slug);
+    }
+
+    String toCursor() {
+        String raw = primary + ":" + secondary + ":" + slug;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the key, or null if the cursor is malformed
+     */
+    static ListingKey fromCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            return new ListingKey(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
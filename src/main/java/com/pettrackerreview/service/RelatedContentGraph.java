@@ -0,0 +1,121 @@
+package com.pettrackerreview.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Top-N related items for every item of one content index, computed once when
+ * the index is built. Neighbors must share a tag or a brand; they are scored by
+ * tag overlap (Jaccard), same brand and recency, and stored as item ordinals.
+ */
+final class RelatedContentGraph {
+
+    static final int MAX_NEIGHBORS = 6;
+
+    private static final double TAG_WEIGHT = 0.6;
+    private static final double BRAND_WEIGHT = 0.3;
+    private static final double RECENCY_WEIGHT = 0.1;
+
+    // Age (relative to the newest item) at which the recency score halves
+    private static final double RECENCY_HALF_LIFE_DAYS = 180;
+
+    private static final int[] NONE = new int[0];
+
+    private final int[][] neighbors;
+
+    /**
+     * @param tagsByOrdinal distinct tags of each item, null if it has none
+     * @param brands brand of each item, null if it has none
+     * @param dates date of each item, null if it has none
+     */
+    RelatedContentGraph(TagIndex tagIndex, FacetIndex facets, List<? extends Collection<String>> tagsByOrdinal,
+                        List<String> brands, List<LocalDateTime> dates) {
+        int size = tagsByOrdinal.size();
+
+        double[] recency = recencyScores(dates);
+        int[] overlap = new int[size];
+        this.neighbors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            Collection<String> tags = tagsByOrdinal.get(i);
+            BitSet candidates = new BitSet(size);
+            Arrays.fill(overlap, 0);
+            if (tags != null) {
+                for (String tag : tags) {
+                    tagIndex.forEachItem(tag, j -> {
+                        overlap[j]++;
+                        candidates.set(j);
+                    });
+                }
+            }
+            BitSet sameBrand = brands.get(i) != null ? facets.brand(brands.get(i)) : null;
+            if (sameBrand != null) {
+                candidates.or(sameBrand);
+            }
+            candidates.clear(i);
+
+            List<Scored> scored = new ArrayList<>(candidates.cardinality());
+            for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+                double score = TAG_WEIGHT * jaccard(overlap[j], tags, tagsByOrdinal.get(j))
+                        + (sameBrand != null && sameBrand.get(j) ? BRAND_WEIGHT : 0)
+                        + RECENCY_WEIGHT * recency[j];
+                scored.add(new Scored(j, score));
+            }
+            // Highest score first; ties keep date order (lower ordinal is newer)
+            scored.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score)
+                    : Integer.compare(a.ordinal, b.ordinal));
+
+            int count = Math.min(MAX_NEIGHBORS, scored.size());
+            int[] top = count > 0 ? new int[count] : NONE;
+            for (int k = 0; k < count; k++) {
+                top[k] = scored.get(k).ordinal;
+            }
+            neighbors[i] = top;
+        }
+    }
+
+    /**
+     * Ordinals of the related items, best first; do not modify
+     */
+    int[] neighbors(int ordinal) {
+        return ordinal >= 0 && ordinal < neighbors.length ? neighbors[ordinal] : NONE;
+    }
+
+    private static double jaccard(int overlap, Collection<String> a, Collection<String> b) {
+        if (overlap == 0 || a == null || b == null) {
+            return 0;
+        }
+        return (double) overlap / (a.size() + b.size() - overlap);
+    }
+
+    /**
+     * 1.0 for the newest item, halving every RECENCY_HALF_LIFE_DAYS; 0 without a date
+     */
+    private static double[] recencyScores(List<LocalDateTime> dates) {
+        LocalDateTime newest = null;
+        for (LocalDateTime date : dates) {
+            if (date != null && (newest == null || date.isAfter(newest))) {
+                newest = date;
+            }
+        }
+        double[] scores = new double[dates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            LocalDateTime date = dates.get(i);
+            if (date != null) {
+                double ageDays = Duration.between(date, newest).toHours() / 24.0;
+                scores[i] = Math.pow(0.5, ageDays / RECENCY_HALF_LIFE_DAYS);
+            }
+        }
+        return scores;
+    }
+
+    private static final class Scored {
+        private final int ordinal;
+        private final double score;
+
+        private Scored(int ordinal, double score) {
+            this.ordinal = ordinal;
+            this.score = score;
+        }
+    }
+}
@@ -1,23 +1,33 @@
 package com.pettrackerreview.service;
 
 import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentItem;
 import com.pettrackerreview.model.Review;
 import com.pettrackerreview.model.LocalizedContent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 @Service
-public class SeoService {
+public class SeoService implements ContentEventListener {
 
     @Autowired
     private YamlContentService contentService;
 
+    @Autowired
+    private ContentEventBus eventBus;
+
+    // 每篇博客/评测的 sitemap 片段（按 slug），由内容事件增量维护，生成 sitemap 时直接拼接
+    private volatile ConcurrentNavigableMap<String, String> blogEntries = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentNavigableMap<String, String> reviewEntries = new ConcurrentSkipListMap<>();
+
     @Value("${seo.base.url:https://pettrackerreview.com}")
     private String baseUrl;
 
@@ -30,6 +40,44 @@ public class SeoService {
     @Value("${seo.robots.allowAll:true}")
     private boolean allowAll;
 
+    @PostConstruct
+    public void init() {
+        resync();
+        eventBus.subscribe("sitemap", this);
+    }
+
+    /**
+     * Patch the sitemap entry of the changed item
+     */
+    @Override
+    public void onEvent(ContentEvent event) {
+        Map<String, String> entries = event.isBlogPost() ? blogEntries : reviewEntries;
+        if (event.getOldItem() != null) {
+            entries.remove(event.getOldItem().getSlug());
+        }
+        if (event.getNewItem() != null) {
+            entries.put(event.getNewItem().getSlug(), sitemapEntry(event.getNewItem()));
+        }
+    }
+
+    /**
+     * Rebuild all entries from the published snapshot
+     */
+    @Override
+    public void resync() {
+        ContentSnapshot snapshot = contentService.getSnapshot();
+        ConcurrentNavigableMap<String, String> blogs = new ConcurrentSkipListMap<>();
+        for (BlogPost post : snapshot.getBlogPosts().all()) {
+            blogs.put(post.getSlug(), sitemapEntry(post));
+        }
+        ConcurrentNavigableMap<String, String> reviews = new ConcurrentSkipListMap<>();
+        for (Review review : snapshot.getReviews().all()) {
+            reviews.put(review.getSlug(), sitemapEntry(review));
+        }
+        blogEntries = blogs;
+        reviewEntries = reviews;
+    }
+
     /**
      * Generate XML sitemap with all website URLs
      */
@@ -193,41 +241,37 @@ public class SeoService {
     }
 
     private void addBlogUrls(StringBuilder sitemap) {
-        List<BlogPost> blogPosts = contentService.getAllBlogPosts();
-        for (BlogPost post : blogPosts) {
-            String url = baseUrl + "/blogs/" + post.getSlug();
-            String lastMod = post.getDate() != null ?
-                    post.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE) : null;
-            addUrl(sitemap, url, "weekly", "0.6", lastMod);
-            
-            // Add multilingual URLs if available
-            if (post.getLocalizedContent() != null) {
-                for (Map.Entry<String, LocalizedContent> entry : post.getLocalizedContent().entrySet()) {
-                    String lang = entry.getKey();
-                    String langUrl = baseUrl + "/blogs/" + post.getSlug() + "?lang=" + lang;
-                    addUrl(sitemap, langUrl, "weekly", "0.6", lastMod);
-                }
-            }
+        for (String entry : blogEntries.values()) {
+            sitemap.append(entry);
         }
     }
 
     private void addReviewUrls(StringBuilder sitemap) {
-        List<Review> reviews = contentService.getAllReviews();
-        for (Review review : reviews) {
-            String url = baseUrl + "/reviews/" + review.getSlug();
-            String lastMod = review.getDate() != null ?
-                    review.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE) : null;
-            addUrl(sitemap, url, "weekly", "0.7", lastMod);
-            
-            // Add multilingual URLs if available
-            if (review.getLocalizedContent() != null) {
-                for (Map.Entry<String, LocalizedContent> entry : review.getLocalizedContent().entrySet()) {
-                    String lang = entry.getKey();
-                    String langUrl = baseUrl + "/reviews/" + review.getSlug() + "?lang=" + lang;
-                    addUrl(sitemap, langUrl, "weekly", "0.7", lastMod);
-                }
+        for (String entry : reviewEntries.values()) {
+            sitemap.append(entry);
+        }
+    }
+
+    /**
+     * The url elements of one blog post or review, including its language variants
+     */
+    private String sitemapEntry(ContentItem item) {
+        StringBuilder entry = new StringBuilder();
+        String path = item instanceof Review ? "/reviews/" : "/blogs/";
+        String priority = item instanceof Review ? "0.7" : "0.6";
+        String url = baseUrl + path + item.getSlug();
+        String lastMod = item.getDate() != null ?
+                item.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE) : null;
+        addUrl(entry, url, "weekly", priority, lastMod);
+
+        // Add multilingual URLs if available
+        if (item.getLocalizedContent() != null) {
+            for (Map.Entry<String, LocalizedContent> localized : item.getLocalizedContent().entrySet()) {
+                String langUrl = url + "?lang=" + localized.getKey();
+                addUrl(entry, langUrl, "weekly", priority, lastMod);
             }
         }
+        return entry.toString();
     }
 
     private void addUrl(StringBuilder sitemap, String loc, String changefreq,
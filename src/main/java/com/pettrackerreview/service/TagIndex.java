@@ -0,0 +1,228 @@
+package com.pettrackerreview.service;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Inverted tag index over a fixed, ordered list of items. Every distinct tag
+ * gets an int id and a posting of the ordinals of the items carrying it, so
+ * multi-tag AND/OR queries are bitset intersections/unions.
+ * <p>
+ * Tags are free-form, so at tens of thousands of items the vocabulary has a
+ * long tail of tags on a handful of items each, next to a few carried by a
+ * large share of the corpus. A bitset posting costs items/8 bytes whatever
+ * its count (about 6 KB at 50,000 items), so each posting picks the smaller
+ * form, as compressed bitmaps such as RoaringBitmap do per container: a
+ * sorted int array while the tag is on fewer than one item in 32, a
+ * {@link BitSet} above that. Rare tags then cost 4 bytes per item, and the
+ * common ones keep the word-wise and/or.
+ */
+public final class TagIndex {
+
+    // A posting is stored as an array while 4 bytes per item are less than 1 bit per ordinal
+    private static final int SPARSE_RATIO = 32;
+
+    private final Map<String, Integer> ids;
+    private final String[] names;
+    // Per tag id exactly one of the two is set
+    private final BitSet[] dense;
+    private final int[][] sparse;
+    private final int size;
+
+    /**
+     * @param tagsByOrdinal tags of each item, in item order; null entries are allowed
+     */
+    public TagIndex(List<? extends Collection<String>> tagsByOrdinal) {
+        Map<String, Integer> tagIds = new HashMap<>();
+        List<String> tagNames = new ArrayList<>();
+        List<int[]> ordinals = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (int ordinal = 0; ordinal < tagsByOrdinal.size(); ordinal++) {
+            Collection<String> tags = tagsByOrdinal.get(ordinal);
+            if (tags == null) {
+                continue;
+            }
+            for (String tag : tags) {
+                if (tag == null) {
+                    continue;
+                }
+                Integer id = tagIds.get(tag);
+                if (id == null) {
+                    id = tagNames.size();
+                    tagIds.put(tag, id);
+                    tagNames.add(tag);
+                    ordinals.add(new int[4]);
+                    counts.add(0);
+                }
+                int[] posting = ordinals.get(id);
+                int count = counts.get(id);
+                if (count == posting.length) {
+                    posting = Arrays.copyOf(posting, count * 2);
+                    ordinals.set(id, posting);
+                }
+                // Ordinals are visited in order, so each posting comes out sorted
+                posting[count] = ordinal;
+                counts.set(id, count + 1);
+            }
+        }
+        this.size = tagsByOrdinal.size();
+        this.ids = Collections.unmodifiableMap(tagIds);
+        this.names = tagNames.toArray(new String[0]);
+        this.dense = new BitSet[names.length];
+        this.sparse = new int[names.length][];
+        for (int id = 0; id < names.length; id++) {
+            int[] posting = ordinals.get(id);
+            int count = counts.get(id);
+            if ((long) count * SPARSE_RATIO < size) {
+                sparse[id] = Arrays.copyOf(posting, count);
+            } else {
+                BitSet bits = new BitSet(size);
+                for (int i = 0; i < count; i++) {
+                    bits.set(posting[i]);
+                }
+                dense[id] = bits;
+            }
+        }
+    }
+
+    /**
+     * Id of the tag, or -1 if no item carries it
+     */
+    public int idOf(String tag) {
+        Integer id = tag != null ? ids.get(tag) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Ordinals of items carrying every tag (matchAll) or any tag. Unknown tags
+     * match nothing; an empty tag list matches nothing.
+     */
+    public BitSet match(Collection<String> tags, boolean matchAll) {
+        BitSet result = null;
+        for (String tag : tags) {
+            int id = idOf(tag);
+            if (id < 0) {
+                if (matchAll) {
+                    return new BitSet();
+                }
+                continue;
+            }
+            if (result == null) {
+                result = new BitSet(size);
+                or(id, result);
+            } else if (matchAll) {
+                and(id, result);
+            } else {
+                or(id, result);
+            }
+        }
+        return result != null ? result : new BitSet();
+    }
+
+    /**
+     * Call the action with each ordinal carrying the tag, in order
+     */
+    void forEachItem(String tag, IntConsumer action) {
+        int id = idOf(tag);
+        if (id < 0) {
+            return;
+        }
+        if (sparse[id] != null) {
+            for (int ordinal : sparse[id]) {
+                action.accept(ordinal);
+            }
+        } else {
+            BitSet bits = dense[id];
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                action.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Item count per tag over the whole index, most used first, ties by name
+     */
+    public Map<String, Integer> counts() {
+        return counts(null);
+    }
+
+    /**
+     * Item count per tag within the given ordinals (e.g. a query result),
+     * most used first; tags with no item in the set are left out
+     */
+    public Map<String, Integer> counts(BitSet within) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(names.length);
+        BitSet overlap = within != null ? new BitSet(size) : null;
+        for (int id = 0; id < names.length; id++) {
+            int count;
+            if (sparse[id] != null) {
+                count = within == null ? sparse[id].length : countWithin(sparse[id], within);
+            } else if (within == null) {
+                count = dense[id].cardinality();
+            } else {
+                overlap.clear();
+                overlap.or(dense[id]);
+                overlap.and(within);
+                count = overlap.cardinality();
+            }
+            if (count > 0) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(names[id], count));
+            }
+        }
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            counts.put(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public Set<String> tags() {
+        return ids.keySet();
+    }
+
+    /**
+     * Number of items the ordinals refer to
+     */
+    public int size() {
+        return size;
+    }
+
+    private void or(int id, BitSet into) {
+        if (sparse[id] != null) {
+            for (int ordinal : sparse[id]) {
+                into.set(ordinal);
+            }
+        } else {
+            into.or(dense[id]);
+        }
+    }
+
+    private void and(int id, BitSet into) {
+        if (dense[id] != null) {
+            into.and(dense[id]);
+            return;
+        }
+        // Keep only the posting's ordinals that are still set
+        BitSet kept = new BitSet(size);
+        for (int ordinal : sparse[id]) {
+            if (into.get(ordinal)) {
+                kept.set(ordinal);
+            }
+        }
+        into.clear();
+        into.or(kept);
+    }
+
+    private static int countWithin(int[] ordinals, BitSet within) {
+        int count = 0;
+        for (int ordinal : ordinals) {
+            if (within.get(ordinal)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
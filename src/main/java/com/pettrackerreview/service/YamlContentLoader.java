@@ -0,0 +1,351 @@
+package com.pettrackerreview.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentItem;
+import com.pettrackerreview.model.ContentSummary;
+import com.pettrackerreview.model.Review;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses blog and review YAML files. The ObjectReaders are configured once and
+ * shared, and whole directories are parsed in parallel on a bounded pool.
+ * With lazy bodies enabled only the listing fields are kept; bodies are
+ * left to {@link ContentBodyStore}.
+ */
+@Component
+public class YamlContentLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(YamlContentLoader.class);
+
+    private final ObjectReader blogPostReader;
+    private final ObjectReader reviewReader;
+    private final YAMLFactory yamlFactory;
+
+    @Autowired
+    private ContentBodyStore bodyStore;
+
+    @Autowired
+    private ContentInterner interner;
+
+    @Autowired
+    private ContentRepository repository;
+
+    @Value("${app.content.loader.parallelism:4}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    public YamlContentLoader() {
+        // Ignore unknown properties so older files with removed fields still load
+        this.yamlFactory = new YAMLFactory();
+        ObjectMapper mapper = new ObjectMapper(yamlFactory);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        this.blogPostReader = mapper.readerFor(BlogPost.class);
+        this.reviewReader = mapper.readerFor(Review.class);
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors()));
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Parse YAML bytes, filling in the slug and body summaries
+     */
+    private <T extends ContentItem> T parseBytes(byte[] bytes, Class<T> type) throws IOException {
+        T item;
+        if (bodyStore.isLazy()) {
+            item = parseListing(bytes, type);
+        } else {
+            item = readerFor(type).readValue(bytes);
+            ContentSummaries.apply(item);
+        }
+        if (item.getSlug() == null || item.getSlug().trim().isEmpty()) {
+            item.setSlug(item.generateSlug());
+        }
+        return item;
+    }
+
+    /**
+     * Stream the document once and bind it without the body fields, so the
+     * bodies are never held as Strings on the item. Each body is summarized
+     * as it streams past.
+     */
+    private <T extends ContentItem> T parseListing(byte[] bytes, Class<T> type) throws IOException {
+        Map<String, ContentSummary> summaries = new HashMap<>();
+        try (JsonParser parser = yamlFactory.createParser(bytes)) {
+            TokenBuffer buffer = new TokenBuffer(parser);
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                copyObject(parser, buffer, "", summaries);
+            } else if (parser.currentToken() != null) {
+                buffer.copyCurrentStructure(parser);
+            }
+            T item = readerFor(type).readValue(buffer.asParser());
+            ContentSummaries.apply(item, summaries);
+            return item;
+        }
+    }
+
+    /**
+     * Copy the object the parser is positioned on, dropping its "content" field.
+     * At the top level ("" language) the same is done for each entry of "localizedContent".
+     */
+    private void copyObject(JsonParser parser, TokenBuffer out, String language,
+                            Map<String, ContentSummary> summaries) throws IOException {
+        out.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (ContentBodyStore.CONTENT_FIELD.equals(field)) {
+                if (value.isScalarValue()) {
+                    summaries.put(language, ContentSummaries.summarize(parser.getValueAsString()));
+                }
+                parser.skipChildren();
+                continue;
+            }
+            out.writeFieldName(field);
+            if (language.isEmpty() && ContentBodyStore.LOCALIZED_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+                out.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String localized = parser.getCurrentName();
+                    out.writeFieldName(localized);
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        copyObject(parser, out, localized, summaries);
+                    } else {
+                        out.copyCurrentStructure(parser);
+                    }
+                }
+                out.writeEndObject();
+            } else {
+                out.copyCurrentStructure(parser);
+            }
+        }
+        out.writeEndObject();
+    }
+
+    /**
+     * Parse YAML text without touching the slug
+     */
+    public <T extends ContentItem> T parseString(String yaml, Class<T> type) throws IOException {
+        return readerFor(type).readValue(yaml);
+    }
+
+    /**
+     * Parse every document of the directory in parallel.
+     * Documents that fail to parse are logged and left out of the result.
+     */
+    public <T extends ContentItem> LoadResult<T> loadDirectory(File directory, Class<T> type) {
+        Set<File> files;
+        try {
+            files = repository.list(directory).keySet();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list " + directory.getName(), e);
+        }
+        return loadFiles(directory.getName(), files, type);
+    }
+
+    /**
+     * Parse the given files in parallel. The size and modification time of each
+     * file are captured before it is read, so a later change is always detected.
+     */
+    public <T extends ContentItem> LoadResult<T> loadFiles(String label, Collection<File> files, Class<T> type) {
+        long start = System.nanoTime();
+        if (files.isEmpty()) {
+            return new LoadResult<>(Collections.emptyMap(), Collections.emptyMap(),
+                    Collections.emptyMap(), Collections.emptyList(), 0);
+        }
+
+        Map<File, T> parsed = new ConcurrentHashMap<>();
+        Map<File, ContentFileState> states = new ConcurrentHashMap<>();
+        Map<String, Long> parseNanos = new ConcurrentHashMap<>();
+        List<File> failures = Collections.synchronizedList(new ArrayList<>());
+
+        Runnable task = () -> files.parallelStream().forEach(file -> {
+            long fileStart = System.nanoTime();
+            try {
+                ContentFileState state = repository.stat(file);
+                if (state == null) {
+                    throw new IOException("no longer exists");
+                }
+                states.put(file, state);
+                // Read once so the same bytes are hashed and parsed
+                byte[] bytes = repository.read(file);
+                if (bytes == null) {
+                    throw new IOException("no longer exists");
+                }
+                String hash = hash(bytes);
+                states.put(file, state.withHash(hash));
+                T item = parseBytes(bytes, type);
+                interner.intern(item);
+                bodyStore.attach(item, file, hash);
+                parsed.put(file, item);
+            } catch (Exception e) {
+                // A document that vanished is recorded as empty, like a stat of a missing file
+                states.putIfAbsent(file, new ContentFileState(0, 0, null));
+                failures.add(file);
+                logger.warn("Error reading {} file: {} - {}", label, file.getName(), e.getMessage());
+            } finally {
+                parseNanos.put(file.getName(), System.nanoTime() - fileStart);
+            }
+        });
+
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + label, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load " + label, e.getCause());
+        }
+
+        // Keep listing order so reloads are deterministic
+        Map<File, T> ordered = new LinkedHashMap<>();
+        for (File file : files) {
+            T item = parsed.get(file);
+            if (item != null) {
+                ordered.put(file, item);
+            }
+        }
+
+        LoadResult<T> result = new LoadResult<>(ordered, states, parseNanos, failures,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logReport(label, result);
+        return result;
+    }
+
+    public static boolean isYamlFile(String name) {
+        return name.endsWith(".yaml") || name.endsWith(".yml");
+    }
+
+    /**
+     * Hex SHA-256 of a file's content
+     */
+    public static String hashFile(File file) throws IOException {
+        return hash(Files.readAllBytes(file.toPath()));
+    }
+
+    static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private <T extends ContentItem> ObjectReader readerFor(Class<T> type) {
+        if (type == BlogPost.class) {
+            return blogPostReader;
+        }
+        if (type == Review.class) {
+            return reviewReader;
+        }
+        throw new IllegalArgumentException("Unsupported content type: " + type.getName());
+    }
+
+    private void logReport(String label, LoadResult<?> result) {
+        if (logger.isDebugEnabled()) {
+            result.getParseNanos().forEach((name, nanos) ->
+                    logger.debug("Parsed {}/{} in {} ms", label, name,
+                            TimeUnit.NANOSECONDS.toMillis(nanos)));
+        }
+        Map.Entry<String, Long> slowest = null;
+        for (Map.Entry<String, Long> entry : result.getParseNanos().entrySet()) {
+            if (slowest == null || entry.getValue() > slowest.getValue()) {
+                slowest = entry;
+            }
+        }
+        logger.info("Loaded {} {} file(s) in {} ms on {} thread(s), {} failed{}",
+                result.getItems().size(), label, result.getElapsedMillis(),
+                pool.getParallelism(), result.getFailures().size(),
+                slowest != null ? ", slowest " + slowest.getKey() + " ("
+                        + TimeUnit.NANOSECONDS.toMillis(slowest.getValue()) + " ms)" : "");
+    }
+
+    /**
+     * Outcome of loading one directory
+     */
+    public static class LoadResult<T extends ContentItem> {
+        private final Map<File, T> items;
+        private final Map<File, ContentFileState> states;
+        private final Map<String, Long> parseNanos;
+        private final List<File> failures;
+        private final long elapsedMillis;
+
+        public LoadResult(Map<File, T> items, Map<File, ContentFileState> states,
+                          Map<String, Long> parseNanos, List<File> failures, long elapsedMillis) {
+            this.items = Collections.unmodifiableMap(items);
+            this.states = Collections.unmodifiableMap(states);
+            this.parseNanos = Collections.unmodifiableMap(parseNanos);
+            this.failures = Collections.unmodifiableList(failures);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Parsed items keyed by source file, in directory listing order
+         */
+        public Map<File, T> getItems() {
+            return items;
+        }
+
+        /**
+         * Size and modification time of every file, captured before it was parsed,
+         * with the content hash for files that could be read
+         */
+        public Map<File, ContentFileState> getStates() {
+            return states;
+        }
+
+        /**
+         * Parse time per file name in nanoseconds, including failed files
+         */
+        public Map<String, Long> getParseNanos() {
+            return parseNanos;
+        }
+
+        public List<File> getFailures() {
+            return failures;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
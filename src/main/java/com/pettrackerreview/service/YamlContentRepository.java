@@ -0,0 +1,129 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.ContentItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Documents as .yaml/.yml files in the content directories. Writes go through
+ * {@link DurableFiles}: synced temp file, atomic rename, directory sync.
+ * <p>
+ * A rename to a new slug moves the new file into place and then deletes the
+ * old one, which the file system cannot do in one step. A synced marker
+ * naming the old file is written first and removed last, so after a crash in
+ * between {@link #recover} deletes the old file instead of loading the item
+ * twice under both slugs.
+ */
+public class YamlContentRepository implements ContentRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(YamlContentRepository.class);
+
+    @Override
+    public String getName() {
+        return "yaml";
+    }
+
+    @Override
+    public Map<File, ContentFileState> list(File directory) {
+        Map<File, ContentFileState> documents = new LinkedHashMap<>();
+        File[] files = directory.isDirectory() ? directory.listFiles((dir, name) -> YamlContentLoader.isYamlFile(name)) : null;
+        if (files != null) {
+            for (File file : files) {
+                documents.put(file, ContentFileState.of(file));
+            }
+        }
+        return documents;
+    }
+
+    @Override
+    public ContentFileState stat(File document) {
+        return document.isFile() ? ContentFileState.of(document) : null;
+    }
+
+    @Override
+    public byte[] read(File document) throws IOException {
+        return document.isFile() ? Files.readAllBytes(document.toPath()) : null;
+    }
+
+    @Override
+    public String version(File document) throws IOException {
+        return document.isFile() ? YamlContentLoader.hashFile(document) : null;
+    }
+
+    @Override
+    public StagedWrite stage(File document, byte[] content, ContentItem item) throws IOException {
+        Path target = document.toPath();
+        Path temp = DurableFiles.tempFileFor(target);
+        // Draft directories exist only once something was saved to them
+        Files.createDirectories(target.getParent());
+        DurableFiles.writeSynced(temp, content);
+        return new StagedWrite() {
+            @Override
+            public void commit(File replaced) throws IOException {
+                if (replaced == null) {
+                    DurableFiles.replace(temp, target);
+                    return;
+                }
+                Path marker = DurableFiles.renameMarkerFor(target);
+                DurableFiles.writeSynced(marker, replaced.getName().getBytes(StandardCharsets.UTF_8));
+                DurableFiles.syncDirectory(target.getParent());
+                DurableFiles.replace(temp, target);
+                Files.deleteIfExists(replaced.toPath());
+                Files.deleteIfExists(marker);
+            }
+
+            @Override
+            public void close() throws IOException {
+                Files.deleteIfExists(temp);
+            }
+        };
+    }
+
+    @Override
+    public void delete(File document) throws IOException {
+        Files.deleteIfExists(document.toPath());
+    }
+
+    @Override
+    public void sync(File directory) throws IOException {
+        DurableFiles.syncDirectory(directory.toPath());
+    }
+
+    /**
+     * Finish renames a crash interrupted: if the new file is in place, delete
+     * the old one it replaces; otherwise the rename never happened
+     */
+    @Override
+    public void recover(File directory) throws IOException {
+        File[] markers = directory.listFiles((dir, name) -> name.startsWith(".") && name.endsWith(DurableFiles.RENAME_SUFFIX));
+        if (markers == null || markers.length == 0) {
+            return;
+        }
+        for (File marker : markers) {
+            String name = marker.getName();
+            File target = new File(directory, name.substring(1, name.length() - DurableFiles.RENAME_SUFFIX.length()));
+            String replaced = new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).trim();
+            if (target.isFile() && YamlContentLoader.isYamlFile(replaced)
+                    && new File(replaced).getName().equals(replaced) && !replaced.equals(target.getName())) {
+                if (Files.deleteIfExists(new File(directory, replaced).toPath())) {
+                    logger.warn("Removed {} left behind by an interrupted rename to {}", replaced, target.getName());
+                }
+            }
+            Files.deleteIfExists(marker.toPath());
+        }
+        DurableFiles.syncDirectory(directory.toPath());
+    }
+
+    @Override
+    public boolean isExternallyModifiable() {
+        return true;
+    }
+}
@@ -1,49 +1,109 @@
 package com.pettrackerreview.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pettrackerreview.config.CacheConfig;
 import com.pettrackerreview.model.BlogPost;
+import com.pettrackerreview.model.ContentItem;
 import com.pettrackerreview.model.LocalizedContent;
 import com.pettrackerreview.model.Review;
 import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Caching;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 @Service
 public class YamlContentService {
     
+    private static final Logger logger = LoggerFactory.getLogger(YamlContentService.class);
+    
     private final ObjectMapper yamlMapper;
     private final String BLOGS_DIR = "blogs";
     private final String REVIEWS_DIR = "reviews";
+    private static final int MAX_MISS_KEY_LENGTH = 128;
+    // Caches whose entries loadCacheEntry can compute from the key
+    private static final List<String> LOADED_CACHES = Arrays.asList("blogPosts", "reviews", "tags");
+    // Deeper listing pages are computed from the index on every request
+    private static final int MAX_CACHED_PAGE = 5;
     
     // 从配置文件中获取内容目录路径
+    // 列表页默认每页条数；只缓存该大小的分页
+    @Value("${app.listing.page-size:12}")
+    private int listingPageSize;
+    
     @Value("${app.content.dir:src/main/resources}")
     private String contentDir;
     
+    @Autowired
+    private YamlContentLoader contentLoader;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private ContentSnapshotStore snapshotStore;
+    
+    @Autowired
+    private ContentBodyStore bodyStore;
+    
+    @Autowired
+    private ContentInterner interner;
+    
+    @Autowired
+    private ContentRepository repository;
+    
+    @Autowired
+    private ContentEventBus eventBus;
+    
+    // 数据库存储为空时，从 YAML 目录一次性导入
+    @Value("${app.content.repository.migrate-from-yaml:true}")
+    private boolean migrateFromYaml;
+    
+    // 当前发布的内容快照，重新加载时整体替换
+    private final AtomicReference<ContentSnapshot> snapshot = new AtomicReference<>(ContentSnapshot.EMPTY);
+    
+    // 每个内容文件的解析结果，用于增量重新加载
+    private final ContentCorpus<BlogPost> blogCorpus = new ContentCorpus<>();
+    private final ContentCorpus<Review> reviewCorpus = new ContentCorpus<>();
+    
+    // 按 slug 分段的写锁，不同文章的保存互不阻塞
+    @Value("${app.content.write-lock-stripes:64}")
+    private int writeLockStripes;
+    
+    private ContentLocks locks;
+    
+    // 定时发布/下线的时间点，到点时只刷新受影响的缓存
+    private ContentSchedule schedule;
+    
+    // 缓存条目依赖的内容，发布时只驱逐受影响的条目
+    private final ContentCacheDependencies cacheDependencies = new ContentCacheDependencies();
+    
     public YamlContentService() {
         this.yamlMapper = new ObjectMapper(new YAMLFactory());
         this.yamlMapper.registerModule(new JavaTimeModule());
@@ -51,13 +111,104 @@ public class YamlContentService {
     
     @PostConstruct
     public void init() {
+        locks = new ContentLocks(writeLockStripes);
+        schedule = new ContentSchedule(this::applyScheduledChanges);
         // Initialize directories if needed
         try {
             ensureDirectoryExists(BLOGS_DIR);
             ensureDirectoryExists(REVIEWS_DIR);
+            repository.recover(getBlogsDirectory());
+            repository.recover(getReviewsDirectory());
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize content directories", e);
         }
+        try {
+            migrateFromYaml();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to migrate YAML content into the " + repository.getName() + " repository", e);
+        }
+        restoreContent();
+        indexStoredDocuments(getBlogsDirectory(), blogCorpus);
+        indexStoredDocuments(getReviewsDirectory(), reviewCorpus);
+        // Entries due for refresh are recomputed from their key, not by replaying the request,
+        // and values computed from a snapshot that was replaced meanwhile are not stored
+        for (String name : LOADED_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CacheConfig.RefreshAheadCache) {
+                ((CacheConfig.RefreshAheadCache) cache).setLoader(key -> loadCacheEntry(name, key.toString()));
+                ((CacheConfig.RefreshAheadCache) cache).setVersion(snapshot::get);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        schedule.shutdown();
+    }
+    
+    /**
+     * Copy the YAML directories into an empty non-YAML repository. Runs once:
+     * afterwards the repository is no longer empty.
+     */
+    private void migrateFromYaml() throws IOException {
+        if (!migrateFromYaml || repository instanceof YamlContentRepository
+                || !repository.list(getBlogsDirectory()).isEmpty()
+                || !repository.list(getReviewsDirectory()).isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        ContentRepository source = new YamlContentRepository();
+        int copied = migrateDirectory(source, getBlogsDirectory(), BlogPost.class)
+                + migrateDirectory(source, getReviewsDirectory(), Review.class);
+        if (copied > 0) {
+            logger.info("Migrated {} YAML document(s) into the {} repository in {} ms",
+                    copied, repository.getName(), System.currentTimeMillis() - start);
+        }
+    }
+    
+    private <T extends ContentItem> int migrateDirectory(ContentRepository source, File directory,
+                                                         Class<T> type) throws IOException {
+        int copied = 0;
+        for (File file : source.list(directory).keySet()) {
+            byte[] bytes = source.read(file);
+            T item;
+            try {
+                // Only documents that parse are migrated
+                item = contentLoader.parseString(new String(bytes, StandardCharsets.UTF_8), type);
+            } catch (IOException e) {
+                logger.warn("Not migrating {}: {}", file.getName(), e.getMessage());
+                continue;
+            }
+            // The YAML is stored as it was, not re-serialized
+            try (ContentRepository.StagedWrite staged = repository.stage(file, bytes, item)) {
+                staged.commit(null);
+            }
+            copied++;
+        }
+        repository.sync(directory);
+        return copied;
+    }
+    
+    /**
+     * Fill the query columns of documents stored before the repository kept
+     * them, from the items just loaded
+     */
+    private <T extends ContentItem> void indexStoredDocuments(File directory, ContentCorpus<T> corpus) {
+        try {
+            int indexed = 0;
+            for (File file : repository.unindexed(directory)) {
+                T item = corpus.get(file);
+                if (item != null) {
+                    repository.index(file, item);
+                    indexed++;
+                }
+            }
+            if (indexed > 0) {
+                logger.info("Indexed {} stored {} document(s)", indexed, directory.getName());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not index stored {} documents: {}", directory.getName(), e.getMessage());
+        }
     }
     
     private void ensureDirectoryExists(String dir) throws IOException {
@@ -77,281 +228,1032 @@ public class YamlContentService {
         return contentDir;
     }
     
-    // Blog Post Methods
-    @Cacheable(value = "blogPosts", key = "'allBlogPosts'")
-    public List<BlogPost> getAllBlogPosts() {
+    public File getBlogsDirectory() {
+        return new File(getContentDir() + "/" + BLOGS_DIR);
+    }
+    
+    public File getReviewsDirectory() {
+        return new File(getContentDir() + "/" + REVIEWS_DIR);
+    }
+    
+    /**
+     * Current content snapshot; never null
+     */
+    public ContentSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+    
+    /**
+     * Re-read all YAML files and publish a new snapshot
+     */
+    public synchronized void reloadContent() {
+        blogCorpus.clear();
+        reviewCorpus.clear();
+        loadInto(blogCorpus, contentLoader.loadDirectory(getBlogsDirectory(), BlogPost.class));
+        loadInto(reviewCorpus, contentLoader.loadDirectory(getReviewsDirectory(), Review.class));
+        publishSnapshot(true);
+        saveSnapshotLater();
+    }
+    
+    /**
+     * Startup load: reuse items from the on-disk snapshot for files whose
+     * size/mtime (or, failing that, content hash) still match, and parse the rest
+     */
+    private synchronized void restoreContent() {
+        ContentSnapshotStore.PersistedContent persisted = snapshotStore.read();
+        if (persisted == null) {
+            reloadContent();
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        int parsed = restoreCorpus(blogCorpus, getBlogsDirectory(), BlogPost.class, BLOGS_DIR, persisted.getBlogPosts())
+                + restoreCorpus(reviewCorpus, getReviewsDirectory(), Review.class, REVIEWS_DIR, persisted.getReviews());
+        publishSnapshot(true);
+        logger.info("Restored content from snapshot in {} ms, {} file(s) re-parsed",
+                System.currentTimeMillis() - start, parsed);
+        if (parsed > 0) {
+            saveSnapshotLater();
+        }
+    }
+    
+    /**
+     * @return number of files that had to be parsed
+     */
+    private <T extends ContentItem> int restoreCorpus(ContentCorpus<T> corpus, File directory, Class<T> type,
+                                                      String label, List<ContentSnapshotStore.PersistedEntry<T>> entries) {
+        Map<String, ContentSnapshotStore.PersistedEntry<T>> byName = new HashMap<>();
+        for (ContentSnapshotStore.PersistedEntry<T> entry : entries) {
+            if (entry.getItem() != null) {
+                byName.put(entry.getFileName(), entry);
+            }
+        }
+        
+        List<File> toParse = new ArrayList<>();
+        for (Map.Entry<File, ContentFileState> listed : listQuietly(directory).entrySet()) {
+            File file = listed.getKey();
+            ContentSnapshotStore.PersistedEntry<T> entry = byName.get(file.getName());
+            ContentFileState current = listed.getValue();
+            if (entry == null) {
+                toParse.add(file);
+            } else if (entry.toState().hasSameStat(current)) {
+                interner.intern(entry.getItem());
+                bodyStore.attach(entry.getItem(), file, entry.getHash());
+                corpus.put(file, entry.getItem(), entry.toState());
+            } else if (entry.getSize() == current.getSize() && entry.getHash() != null
+                    && entry.getHash().equals(current.getHash() != null ? current.getHash() : hashQuietly(file))) {
+                // Touched but not modified, e.g. copied without preserving mtime
+                interner.intern(entry.getItem());
+                bodyStore.attach(entry.getItem(), file, entry.getHash());
+                corpus.put(file, entry.getItem(), current.withHash(entry.getHash()));
+            } else {
+                toParse.add(file);
+            }
+        }
+        
+        if (!toParse.isEmpty()) {
+            loadInto(corpus, contentLoader.loadFiles(label, toParse, type));
+        }
+        return toParse.size();
+    }
+    
+    private String hashQuietly(File file) {
         try {
-            List<BlogPost> blogPosts = new ArrayList<>();
-            File blogsDir = new File(getContentDir() + "/" + BLOGS_DIR);
-            
-            if (blogsDir.exists() && blogsDir.isDirectory()) {
-                File[] yamlFiles = blogsDir.listFiles((dir, name) -> name.endsWith(".yaml") || name.endsWith(".yml"));
-                if (yamlFiles != null) {
-                    for (File file : yamlFiles) {
-                        try {
-                            // Create a custom mapper that can ignore unknown properties
-                            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-                            mapper.registerModule(new JavaTimeModule());
-                            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                            
-                            BlogPost post = mapper.readValue(file, BlogPost.class);
-                            if (post.getSlug() == null || post.getSlug().trim().isEmpty()) {
-                                post.setSlug(post.generateSlug());
-                            }
-                            blogPosts.add(post);
-                        } catch (Exception e) {
-                            System.err.println("Error reading blog file: " + file.getName() + " - " + e.getMessage());
-                        }
-                    }
+            return repository.version(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private Map<File, ContentFileState> listQuietly(File directory) {
+        try {
+            return repository.list(directory);
+        } catch (IOException e) {
+            logger.warn("Could not list {}: {}", directory, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+    
+    private void saveSnapshotLater() {
+        snapshotStore.scheduleSave(this::toPersistedContent);
+    }
+    
+    private ContentSnapshotStore.PersistedContent toPersistedContent() {
+        ContentSnapshotStore.PersistedContent content = new ContentSnapshotStore.PersistedContent();
+        content.setBlogPosts(toPersistedEntries(blogCorpus));
+        content.setReviews(toPersistedEntries(reviewCorpus));
+        return content;
+    }
+    
+    private <T extends ContentItem> List<ContentSnapshotStore.PersistedEntry<T>> toPersistedEntries(ContentCorpus<T> corpus) {
+        List<ContentSnapshotStore.PersistedEntry<T>> entries = new ArrayList<>();
+        corpus.entries().forEach((file, entry) -> {
+            if (entry.getItem() != null) {
+                entries.add(new ContentSnapshotStore.PersistedEntry<>(file.getName(), entry.getState(), entry.getItem()));
+            }
+        });
+        return entries;
+    }
+    
+    /**
+     * Compare both content directories with the loaded state and re-parse only
+     * files that were created, modified or deleted since.
+     * @return number of files whose served content changed
+     */
+    public synchronized int rescanContent() {
+        Set<File> changed = new HashSet<>(blogCorpus.findChanges(listQuietly(getBlogsDirectory()), this::hashQuietly));
+        changed.addAll(reviewCorpus.findChanges(listQuietly(getReviewsDirectory()), this::hashQuietly));
+        return refreshFiles(changed);
+    }
+    
+    /**
+     * Re-parse the given content files and patch the snapshot. A file that no
+     * longer exists is removed; a file that fails to parse keeps its last good version.
+     * @return number of files whose served content changed
+     */
+    public synchronized int refreshFiles(Collection<File> files) {
+        List<File> blogFiles = new ArrayList<>();
+        List<File> reviewFiles = new ArrayList<>();
+        for (File file : files) {
+            if (getBlogsDirectory().equals(file.getParentFile())) {
+                blogFiles.add(file);
+            } else if (getReviewsDirectory().equals(file.getParentFile())) {
+                reviewFiles.add(file);
+            }
+        }
+        
+        int changed = refreshCorpus(blogCorpus, blogFiles, BlogPost.class, BLOGS_DIR)
+                + refreshCorpus(reviewCorpus, reviewFiles, Review.class, REVIEWS_DIR);
+        if (changed > 0) {
+            publishSnapshot();
+            saveSnapshotLater();
+        }
+        return changed;
+    }
+    
+    private <T extends ContentItem> int refreshCorpus(ContentCorpus<T> corpus, List<File> files,
+                                                      Class<T> type, String label) {
+        int changed = 0;
+        List<File> toParse = new ArrayList<>();
+        for (File file : files) {
+            ContentFileState state;
+            try {
+                state = repository.stat(file);
+            } catch (IOException e) {
+                logger.warn("Could not check {}: {}", file.getName(), e.getMessage());
+                continue;
+            }
+            if (state == null) {
+                if (corpus.remove(file)) {
+                    changed++;
                 }
+            } else if (corpus.isChanged(file, state, this::hashQuietly)) {
+                toParse.add(file);
             }
-            
-            // Sort by date (newest first)
-            return blogPosts.stream()
-                    .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                    .collect(Collectors.toList());
-                    
-        } catch (Exception e) {
-            System.err.println("Error getting all blog posts: " + e.getMessage());
-            return new ArrayList<>();
         }
+        if (!toParse.isEmpty()) {
+            YamlContentLoader.LoadResult<T> result = contentLoader.loadFiles(label, toParse, type);
+            loadInto(corpus, result);
+            changed += result.getItems().size();
+        }
+        return changed;
     }
     
-    @Cacheable(value = "blogPosts", key = "#slug")
-    public BlogPost getBlogPostBySlug(String slug) {
-        return getAllBlogPosts().stream()
-                .filter(post -> slug.equals(post.getSlug()) || slug.equals(post.generateSlug()))
-                .findFirst()
-                .orElse(null);
+    private <T extends ContentItem> void loadInto(ContentCorpus<T> corpus, YamlContentLoader.LoadResult<T> result) {
+        result.getItems().forEach((file, item) -> corpus.put(file, item, result.getStates().get(file)));
+        // Keep serving the last good version of files that failed to parse
+        for (File failed : result.getFailures()) {
+            corpus.markFailed(failed, result.getStates().get(failed));
+        }
     }
     
-    @Caching(evict = {
-        @CacheEvict(value = "blogPosts", key = "'allBlogPosts'"),
-        @CacheEvict(value = "blogPosts", key = "#blogPost.slug", condition = "#blogPost.slug != null"),
-        @CacheEvict(value = "tags", allEntries = true)
-    })
-    public void saveBlogPost(BlogPost blogPost) throws IOException {
-        if (blogPost.getSlug() == null || blogPost.getSlug().trim().isEmpty()) {
-            blogPost.setSlug(blogPost.generateSlug());
+    /**
+     * Publish the items that are live now, queue the future publish and
+     * unpublish times of the rest, evict the cache entries that depend on
+     * what changed for the public site, and then announce the changes on the
+     * event bus. Items of open batches are not in the corpus yet, so other
+     * publishes go ahead without them. Callers hold the service lock.
+     */
+    private void publishSnapshot() {
+        publishSnapshot(false);
+    }
+    
+    /**
+     * @param fullLoad every item was loaded again (startup, restore, reload):
+     *                 subscribers get one resync instead of an event per item
+     */
+    private void publishSnapshot(boolean fullLoad) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BlogPost> blogPosts = blogCorpus.items();
+        List<Review> reviews = reviewCorpus.items();
+        ContentSnapshot next = new ContentSnapshot(live(blogPosts, now), live(reviews, now));
+        ContentSnapshot previous = snapshot.getAndSet(next);
+        // A miss may have become a hit
+        Cache misses = cacheManager.getCache("contentMisses");
+        if (misses != null) {
+            misses.clear();
+        }
+        schedule.reset(BLOGS_DIR, blogPosts, now);
+        schedule.reset(REVIEWS_DIR, reviews, now);
+        List<ContentEvent> events = fullLoad ? null : new ArrayList<ContentEvent>();
+        Set<String> touched = new HashSet<>();
+        Set<String> gone = new HashSet<>();
+        diffSnapshots(BLOGS_DIR, previous.getBlogPosts(), next.getBlogPosts(), events, touched, gone);
+        diffSnapshots(REVIEWS_DIR, previous.getReviews(), next.getReviews(), events, touched, gone);
+        for (ContentCacheDependencies.Entry entry : cacheDependencies.dependents(touched)) {
+            Cache cache = cacheManager.getCache(entry.getCacheName());
+            if (cache != null) {
+                cache.evict(entry.getKey());
+            }
+        }
+        cacheDependencies.forget(gone);
+        // Subscribers (e.g. the cache primer) see the caches already evicted
+        if (fullLoad) {
+            eventBus.publishResync();
+            return;
+        }
+        for (ContentEvent event : events) {
+            eventBus.publish(event);
+        }
+    }
+    
+    /**
+     * Compare two published indexes by slug. Unchanged files keep their item
+     * instance across snapshots, so identity tells updated from untouched.
+     * @param events receives one event per created, updated or deleted item, unless null
+     * @param touched receives the cache dependencies of every changed item
+     * @param gone receives the dependencies of deleted items and unused tags
+     */
+    private void diffSnapshots(String type, ContentIndex<? extends ContentItem> before,
+                               ContentIndex<? extends ContentItem> after, List<ContentEvent> events,
+                               Set<String> touched, Set<String> gone) {
+        Map<String, ContentItem> removed = new HashMap<>();
+        for (ContentItem item : before.all()) {
+            removed.put(item.getSlug(), item);
+        }
+        for (ContentItem item : after.all()) {
+            ContentItem old = removed.remove(item.getSlug());
+            if (old == null) {
+                if (events != null) {
+                    events.add(new ContentCreated(type, item));
+                }
+                ContentCacheDependencies.changed(type, null, item, touched);
+            } else if (old != item) {
+                if (events != null) {
+                    events.add(new ContentUpdated(type, old, item));
+                }
+                ContentCacheDependencies.changed(type, old, item, touched);
+            }
+        }
+        for (ContentItem old : removed.values()) {
+            if (events != null) {
+                events.add(new ContentDeleted(type, old));
+            }
+            ContentCacheDependencies.changed(type, old, null, touched);
+            gone.add(ContentCacheDependencies.item(type, old.getSlug()));
+        }
+        if (!before.tags().equals(after.tags())) {
+            touched.add(ContentCacheDependencies.tagSet(type));
+            for (String tag : before.tags()) {
+                if (!after.tags().contains(tag)) {
+                    gone.add(ContentCacheDependencies.tag(type, tag));
+                }
+            }
+        }
+    }
+    
+    private static <T extends ContentItem> List<T> live(List<T> items, LocalDateTime now) {
+        List<T> live = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (ContentSchedule.isLive(item, now)) {
+                live.add(item);
+            }
+        }
+        return live;
+    }
+    
+    /**
+     * Called by the schedule when a publish or unpublish time is reached:
+     * republish the snapshot, which evicts only the cache entries that depend
+     * on the items that went live or offline
+     */
+    private synchronized void applyScheduledChanges() {
+        List<ContentSchedule.Change> due = schedule.takeDue(LocalDateTime.now());
+        if (due.isEmpty()) {
+            return;
+        }
+        publishSnapshot();
+        for (ContentSchedule.Change change : due) {
+            logger.info("Scheduled {}: {} {} at {}", change.isPublish() ? "publish" : "unpublish",
+                    change.getType(), change.getItem().getSlug(), change.getAt());
+        }
+    }
+    
+    /**
+     * Dry run of a save: the cache entries that saving the item would evict
+     * now, without saving it. A save also clears the contentMisses cache,
+     * which is listed as a whole. The item itself is left untouched.
+     * @param contentType "blogs" or "reviews"
+     * @param originalSlug slug the item is saved over when it renames it, or null
+     * @return "cache::key" of every cached entry that depends on the change
+     */
+    public List<String> previewSaveEvictions(String contentType, ContentItem item, String originalSlug) {
+        if (!BLOGS_DIR.equals(contentType) && !REVIEWS_DIR.equals(contentType)) {
+            throw new IllegalArgumentException("Unsupported content type: " + contentType);
+        }
+        String slug = item.generateSlug();
+        ContentIndex<? extends ContentItem> index = BLOGS_DIR.equals(contentType)
+                ? getSnapshot().getBlogPosts() : getSnapshot().getReviews();
+        ContentItem before = index.bySlug(originalSlug != null && !originalSlug.isEmpty() ? originalSlug : slug);
+        ContentItem after = ContentSchedule.isLive(item, LocalDateTime.now()) ? item : null;
+        
+        Set<String> touched = new HashSet<>();
+        ContentCacheDependencies.changed(contentType, before, after, touched);
+        Set<String> tags = new HashSet<>(index.tags());
+        if (before != null && before.getTags() != null) {
+            for (String tag : before.getTags()) {
+                // The tag goes away if this item was its only one
+                if (index.byTag(tag).size() == 1) {
+                    tags.remove(tag);
+                }
+            }
+        }
+        if (after != null && after.getTags() != null) {
+            tags.addAll(after.getTags());
+        }
+        if (!tags.equals(index.tags())) {
+            touched.add(ContentCacheDependencies.tagSet(contentType));
         }
         
-        File file = new File(getContentDir() + "/" + BLOGS_DIR + "/" + blogPost.getSlug() + ".yaml");
-        yamlMapper.writeValue(file, blogPost);
+        List<String> evicted = new ArrayList<>();
+        for (ContentCacheDependencies.Entry entry : cacheDependencies.dependents(touched)) {
+            Cache cache = cacheManager.getCache(entry.getCacheName());
+            if (cache != null && ContentCacheDependencies.isCached(cache, entry.getKey())) {
+                evicted.add(entry.toString());
+            }
+        }
+        Collections.sort(evicted);
+        Cache misses = cacheManager.getCache("contentMisses");
+        if (misses != null && misses.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+            long size = ((com.github.benmanes.caffeine.cache.Cache<?, ?>) misses.getNativeCache()).estimatedSize();
+            if (size > 0) {
+                evicted.add("contentMisses::* (" + size + " entries)");
+            }
+        }
+        return evicted;
+    }
+    
+    /**
+     * Move a written temp file into place and record it so the watcher does not
+     * re-parse it. A rename removes the previous file before the snapshot is
+     * published, so it never shows both slugs or neither; the repository
+     * recovers a rename a crash cut short. Batched writes are held by the
+     * batch and reach the corpus when it closes.
+     */
+    private synchronized <T extends ContentItem> void recordWrite(ContentCorpus<T> corpus, ContentRepository.StagedWrite staged,
+                                                                  File file, File previous, T item, String hash,
+                                                                  WriteBatch batch) throws IOException {
+        staged.commit(previous);
+        ContentFileState state = repository.stat(file).withHash(hash);
+        interner.intern(item);
+        ContentSummaries.apply(item);
+        bodyStore.attach(item, file, state.getHash());
+        if (batch != null) {
+            batch.pending.add(new PendingWrite<>(corpus, file, previous, item, state));
+            return;
+        }
+        if (previous != null) {
+            corpus.remove(previous);
+        }
+        corpus.put(file, item, state);
+        publishSnapshot();
+        saveSnapshotLater();
     }
     
-    @Caching(evict = {
-        @CacheEvict(value = "blogPosts", key = "'allBlogPosts'"),
-        @CacheEvict(value = "blogPosts", key = "#slug"),
-        @CacheEvict(value = "tags", allEntries = true)
+    private synchronized <T extends ContentItem> void recordDelete(ContentCorpus<T> corpus, File file) {
+        corpus.remove(file);
+        publishSnapshot();
+        saveSnapshotLater();
+    }
+    
+    private File contentFile(String dir, String slug) {
+        return new File(getContentDir() + "/" + dir + "/" + slug + ".yaml");
+    }
+    
+    /**
+     * Version token of a stored item: the SHA-256 of its document, or null if it does not exist
+     */
+    private String versionOf(String dir, String slug) {
+        return hashQuietly(contentFile(dir, slug));
+    }
+    
+    /**
+     * Write an item under the write locks of its slug (and of the original slug
+     * when it is renamed). With an expected version the save only goes ahead if
+     * the stored file still has that version.
+     */
+    private <T extends ContentItem> void writeItem(ContentCorpus<T> corpus, String dir, T item,
+                                                   String originalSlug, String expectedVersion,
+                                                   WriteBatch batch) throws IOException {
+        if (item.getSlug() == null || item.getSlug().trim().isEmpty()) {
+            item.setSlug(item.generateSlug());
+        }
+        String slug = item.getSlug();
+        boolean rename = originalSlug != null && !originalSlug.isEmpty() && !originalSlug.equals(slug);
+        File file = contentFile(dir, slug);
+        File previous = rename ? contentFile(dir, originalSlug) : null;
+        
+        try (ContentLocks.Held held = locks.lock(dir, slug, rename ? originalSlug : null)) {
+            if (expectedVersion != null && !expectedVersion.isEmpty()) {
+                String currentVersion = repository.version(rename ? previous : file);
+                if (currentVersion == null) {
+                    throw new ContentConflictException("'" + (rename ? originalSlug : slug) + "' was deleted by another editor");
+                }
+                if (!currentVersion.equals(expectedVersion)) {
+                    throw new ContentConflictException("'" + (rename ? originalSlug : slug)
+                            + "' was changed by another editor; reload it and apply your changes again");
+                }
+            }
+            if (rename && repository.findBySlug(file.getParentFile(), slug) != null) {
+                throw new ContentConflictException("Cannot rename to '" + slug + "': it already exists");
+            }
+            
+            // 先准备好写入（YAML 存储会写临时文件并 fsync），提交时原子替换，读者不会看到写了一半的内容
+            byte[] bytes = yamlMapper.writeValueAsBytes(item);
+            try (ContentRepository.StagedWrite staged = repository.stage(file, bytes, item)) {
+                recordWrite(corpus, staged, file, previous, item, YamlContentLoader.hash(bytes), batch);
+            }
+            if (batch == null) {
+                repository.sync(file.getParentFile());
+            } else {
+                batch.written(file.getParentFile());
+            }
+        }
+    }
+    
+    /**
+     * Start a batch; none of its items are published until it commits
+     */
+    private WriteBatch openBatch() {
+        return new WriteBatch();
+    }
+    
+    /**
+     * Sync the directories written by a batch once, then publish its items
+     */
+    private void commitBatch(WriteBatch batch) throws IOException {
+        try {
+            for (File directory : batch.directories) {
+                repository.sync(directory);
+            }
+        } finally {
+            closeBatch(batch);
+        }
+    }
+    
+    /**
+     * Merge the batch's items into the corpus and publish them in one snapshot.
+     * A file saved or deleted again since the batch wrote it keeps the newer
+     * state the corpus already has.
+     */
+    private synchronized void closeBatch(WriteBatch batch) throws IOException {
+        int merged = 0;
+        for (PendingWrite<?> write : batch.pending) {
+            if (write.state.getHash().equals(repository.version(write.file))) {
+                write.merge();
+                merged++;
+            }
+        }
+        if (merged > 0) {
+            publishSnapshot();
+            saveSnapshotLater();
+        }
+    }
+    
+    private <T extends ContentItem> void deleteItem(ContentCorpus<T> corpus, String dir, String slug) throws IOException {
+        try (ContentLocks.Held held = locks.lock(dir, slug)) {
+            File file = contentFile(dir, slug);
+            repository.delete(file);
+            recordDelete(corpus, file);
+            repository.sync(file.getParentFile());
+        }
+    }
+    
+    // Blog Post Methods
+    @Cacheable(value = "blogPosts", key = "'allBlogPosts'", sync = true)
+    public List<BlogPost> getAllBlogPosts() {
+        cacheDependencies.record("blogPosts", "allBlogPosts", ContentCacheDependencies.all(BLOGS_DIR));
+        return getSnapshot().getBlogPosts().all();
+    }
+    
+    // Only published slugs are admitted to blogPosts; unknown ones go to the bounded miss cache
+    @Caching(cacheable = {
+        @Cacheable(value = "blogPosts", key = "#slug", condition = "@yamlContentService.isPublishedBlogPost(#slug)"),
+        @Cacheable(value = "contentMisses", key = "'blogPost-' + #slug", condition = "@yamlContentService.isCacheableMiss(#slug) and !@yamlContentService.isPublishedBlogPost(#slug)")
     })
-    public void deleteBlogPost(String slug) throws IOException {
-        File file = new File(getContentDir() + "/" + BLOGS_DIR + "/" + slug + ".yaml");
-        if (file.exists()) {
-            file.delete();
+    public BlogPost getBlogPostBySlug(String slug) {
+        BlogPost blogPost = getSnapshot().getBlogPosts().bySlug(slug);
+        if (blogPost != null) {
+            cacheDependencies.record("blogPosts", slug, ContentCacheDependencies.item(BLOGS_DIR, slug));
         }
+        return blogPost;
+    }
+    
+    /**
+     * Every blog post including scheduled and expired ones, newest first, for the admin
+     */
+    public List<BlogPost> getManagedBlogPosts() {
+        return getManagedBlogPosts(null);
+    }
+    
+    /**
+     * Managed blog posts carrying the tag, or all of them if it is null
+     */
+    public List<BlogPost> getManagedBlogPosts(String tag) {
+        return managed(blogCorpus, getBlogsDirectory(), tag);
+    }
+    
+    /**
+     * A blog post whether or not it is live, for the admin
+     */
+    public BlogPost getManagedBlogPost(String slug) {
+        return managedBySlug(blogCorpus, getBlogsDirectory(), slug);
+    }
+    
+    /**
+     * Current version of a blog post, passed back to saveBlogPost to detect concurrent edits
+     */
+    public String getBlogPostVersion(String slug) {
+        return versionOf(BLOGS_DIR, slug);
+    }
+    
+    public void saveBlogPost(BlogPost blogPost) throws IOException {
+        writeItem(blogCorpus, BLOGS_DIR, blogPost, null, null, null);
+    }
+    
+    /**
+     * Save an edited blog post, renaming it if the slug changed
+     * @param originalSlug slug the post was loaded under, or null for a new post
+     * @param expectedVersion version from getBlogPostVersion when the editor opened it, or null to skip the check
+     * @throws ContentConflictException if the post changed since, or the new slug is taken
+     */
+    public void saveBlogPost(BlogPost blogPost, String originalSlug, String expectedVersion) throws IOException {
+        writeItem(blogCorpus, BLOGS_DIR, blogPost, originalSlug, expectedVersion, null);
+    }
+    
+    public void deleteBlogPost(String slug) throws IOException {
+        deleteItem(blogCorpus, BLOGS_DIR, slug);
     }
     
     // Review Methods
-    @Cacheable(value = "reviews", key = "'allReviews'")
+    @Cacheable(value = "reviews", key = "'allReviews'", sync = true)
     public List<Review> getAllReviews() {
+        cacheDependencies.record("reviews", "allReviews", ContentCacheDependencies.all(REVIEWS_DIR));
+        return getSnapshot().getReviews().all();
+    }
+    
+    @Caching(cacheable = {
+        @Cacheable(value = "reviews", key = "#slug", condition = "@yamlContentService.isPublishedReview(#slug)"),
+        @Cacheable(value = "contentMisses", key = "'review-' + #slug", condition = "@yamlContentService.isCacheableMiss(#slug) and !@yamlContentService.isPublishedReview(#slug)")
+    })
+    public Review getReviewBySlug(String slug) {
+        Review review = getSnapshot().getReviews().bySlug(slug);
+        if (review != null) {
+            cacheDependencies.record("reviews", slug, ContentCacheDependencies.item(REVIEWS_DIR, slug));
+        }
+        return review;
+    }
+    
+    /**
+     * Every review including scheduled and expired ones, newest first, for the admin
+     */
+    public List<Review> getManagedReviews() {
+        return getManagedReviews(null);
+    }
+    
+    /**
+     * Managed reviews carrying the tag, or all of them if it is null
+     */
+    public List<Review> getManagedReviews(String tag) {
+        return managed(reviewCorpus, getReviewsDirectory(), tag);
+    }
+    
+    /**
+     * A review whether or not it is live, for the admin
+     */
+    public Review getManagedReview(String slug) {
+        return managedBySlug(reviewCorpus, getReviewsDirectory(), slug);
+    }
+    
+    /**
+     * Items of the corpus newest first, optionally only those carrying the tag.
+     * A repository with query columns answers the order and the tag; otherwise
+     * the items are sorted and filtered here.
+     */
+    private <T extends ContentItem> List<T> managed(ContentCorpus<T> corpus, File directory, String tag) {
         try {
-            List<Review> reviews = new ArrayList<>();
-            File reviewsDir = new File(getContentDir() + "/" + REVIEWS_DIR);
-            
-            if (reviewsDir.exists() && reviewsDir.isDirectory()) {
-                File[] yamlFiles = reviewsDir.listFiles((dir, name) -> name.endsWith(".yaml") || name.endsWith(".yml"));
-                if (yamlFiles != null) {
-                    for (File file : yamlFiles) {
-                        try {
-                            // Create a custom mapper that can ignore unknown properties
-                            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-                            mapper.registerModule(new JavaTimeModule());
-                            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                            
-                            Review review = mapper.readValue(file, Review.class);
-                            if (review.getSlug() == null || review.getSlug().trim().isEmpty()) {
-                                review.setSlug(review.generateSlug());
-                            }
-                            reviews.add(review);
-                        } catch (Exception e) {
-                            System.err.println("Error reading review file: " + file.getName() + " - " + e.getMessage());
-                        }
+            List<File> ordered = repository.listNewestFirst(directory);
+            Set<File> tagged = tag != null ? repository.findByTag(directory, tag) : null;
+            if (ordered != null && (tag == null || tagged != null)) {
+                List<T> items = new ArrayList<>(tagged != null ? tagged.size() : ordered.size());
+                for (File file : ordered) {
+                    T item = corpus.get(file);
+                    if (item != null && (tagged == null || tagged.contains(file))) {
+                        items.add(item);
                     }
                 }
+                return items;
             }
-            
-            // Sort by date (newest first)
-            return reviews.stream()
-                    .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                    .collect(Collectors.toList());
-                    
-        } catch (Exception e) {
-            System.err.println("Error getting all reviews: " + e.getMessage());
-            return new ArrayList<>();
+        } catch (IOException e) {
+            logger.warn("Could not query {}, sorting in memory: {}", directory.getName(), e.getMessage());
         }
+        List<T> items = corpus.items();
+        if (tag != null) {
+            items.removeIf(item -> item.getTags() == null || !item.getTags().contains(tag));
+        }
+        items.sort(Comparator.comparing(ContentItem::getDate, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+                .thenComparing(Comparator.comparingInt(ContentItem::getSortOrder).reversed()));
+        return items;
     }
     
-    @Cacheable(value = "reviews", key = "#slug")
-    public Review getReviewBySlug(String slug) {
-        return getAllReviews().stream()
-                .filter(review -> slug.equals(review.getSlug()) || slug.equals(review.generateSlug()))
-                .findFirst()
-                .orElse(null);
+    private <T extends ContentItem> T managedBySlug(ContentCorpus<T> corpus, File directory, String slug) {
+        if (slug == null) {
+            return null;
+        }
+        try {
+            File document = repository.findBySlug(directory, slug);
+            T item = document != null ? corpus.get(document) : null;
+            if (item != null && slug.equals(item.getSlug())) {
+                return item;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not look up {} in {}: {}", slug, directory.getName(), e.getMessage());
+        }
+        // YAML files copied in under another name than their slug
+        for (T item : corpus.items()) {
+            if (slug.equals(item.getSlug())) {
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Current version of a review, passed back to saveReview to detect concurrent edits
+     */
+    public String getReviewVersion(String slug) {
+        return versionOf(REVIEWS_DIR, slug);
     }
     
-    @Caching(evict = {
-        @CacheEvict(value = "reviews", key = "'allReviews'"),
-        @CacheEvict(value = "reviews", key = "#review.slug", condition = "#review.slug != null"),
-        @CacheEvict(value = "tags", allEntries = true)
-    })
     public void saveReview(Review review) throws IOException {
-        if (review.getSlug() == null || review.getSlug().trim().isEmpty()) {
-            review.setSlug(review.generateSlug());
-        }
-        
-        File file = new File(getContentDir() + "/" + REVIEWS_DIR + "/" + review.getSlug() + ".yaml");
-        yamlMapper.writeValue(file, review);
+        writeItem(reviewCorpus, REVIEWS_DIR, review, null, null, null);
+    }
+    
+    /**
+     * Save an edited review, renaming it if the slug changed
+     * @param originalSlug slug the review was loaded under, or null for a new review
+     * @param expectedVersion version from getReviewVersion when the editor opened it, or null to skip the check
+     * @throws ContentConflictException if the review changed since, or the new slug is taken
+     */
+    public void saveReview(Review review, String originalSlug, String expectedVersion) throws IOException {
+        writeItem(reviewCorpus, REVIEWS_DIR, review, originalSlug, expectedVersion, null);
     }
     
-    @Caching(evict = {
-        @CacheEvict(value = "reviews", key = "'allReviews'"),
-        @CacheEvict(value = "reviews", key = "#slug"),
-        @CacheEvict(value = "tags", allEntries = true)
-    })
     public void deleteReview(String slug) throws IOException {
-        File file = new File(getContentDir() + "/" + REVIEWS_DIR + "/" + slug + ".yaml");
-        if (file.exists()) {
-            file.delete();
-        }
+        deleteItem(reviewCorpus, REVIEWS_DIR, slug);
     }
     
     // Utility Methods
-    @Cacheable(value = "blogPosts", key = "'latestBlogPosts-' + #limit")
+    @Cacheable(value = "blogPosts", key = "'latestBlogPosts-' + #limit", sync = true)
     public List<BlogPost> getLatestBlogPosts(int limit) {
-        return getAllBlogPosts().stream()
-                .filter(BlogPost::isShowOnHomepage) // Only show posts with sortOrder > 0
-                .sorted((a, b) -> Integer.compare(b.getSortOrder(), a.getSortOrder())) // Sort by sortOrder descending
-                .limit(limit)
-                .collect(Collectors.toList());
+        // Only posts with sortOrder > 0, sorted by sortOrder descending
+        cacheDependencies.record("blogPosts", "latestBlogPosts-" + limit, ContentCacheDependencies.homepage(BLOGS_DIR));
+        return getSnapshot().getBlogPosts().homepage(limit);
     }
     
-    @Cacheable(value = "reviews", key = "'latestReviews-' + #limit")
+    @Cacheable(value = "reviews", key = "'latestReviews-' + #limit", sync = true)
     public List<Review> getLatestReviews(int limit) {
-        return getAllReviews().stream()
-                .filter(Review::isShowOnHomepage) // Only show reviews with sortOrder > 0
-                .sorted((a, b) -> Integer.compare(b.getSortOrder(), a.getSortOrder())) // Sort by sortOrder descending
-                .limit(limit)
-                .collect(Collectors.toList());
+        // Only reviews with sortOrder > 0, sorted by sortOrder descending
+        cacheDependencies.record("reviews", "latestReviews-" + limit, ContentCacheDependencies.homepage(REVIEWS_DIR));
+        return getSnapshot().getReviews().homepage(limit);
     }
     
-    @Cacheable(value = "tags", key = "'allTags'")
+    @Cacheable(value = "tags", key = "'allTags'", sync = true)
     public Set<String> getAllTags() {
-        Set<String> allTags = new HashSet<>();
-        
-        getAllBlogPosts().forEach(post -> {
-            if (post.getTags() != null) {
-                allTags.addAll(post.getTags());
-            }
-        });
-        
-        getAllReviews().forEach(review -> {
-            if (review.getTags() != null) {
-                allTags.addAll(review.getTags());
-            }
-        });
-        
-        return allTags;
+        cacheDependencies.record("tags", "allTags",
+                ContentCacheDependencies.tagSet(BLOGS_DIR), ContentCacheDependencies.tagSet(REVIEWS_DIR));
+        return getSnapshot().getAllTags();
     }
     
     /**
      * 获取博客标签集合
      * @return 博客标签集合
      */
-    @Cacheable(value = "tags", key = "'blogTags'")
+    @Cacheable(value = "tags", key = "'blogTags'", sync = true)
     public Set<String> getBlogTags() {
-        Set<String> blogTags = new HashSet<>();
-        
-        getAllBlogPosts().forEach(post -> {
-            if (post.getTags() != null) {
-                blogTags.addAll(post.getTags());
-            }
-        });
-        
-        // 过滤出有实际博客文章的标签
-        Set<String> validBlogTags = new HashSet<>();
-        for (String tag : blogTags) {
-            List<BlogPost> blogPostsWithTag = getBlogPostsByTag(tag);
-            if (!blogPostsWithTag.isEmpty()) {
-                validBlogTags.add(tag);
-            }
-        }
-        
-        return validBlogTags;
+        cacheDependencies.record("tags", "blogTags", ContentCacheDependencies.tagSet(BLOGS_DIR));
+        // 索引中的标签都至少有一篇博客文章
+        return getSnapshot().getBlogPosts().tags();
     }
     
     /**
      * 获取评测标签集合
      * @return 评测标签集合
      */
-    @Cacheable(value = "tags", key = "'reviewTags'")
+    @Cacheable(value = "tags", key = "'reviewTags'", sync = true)
     public Set<String> getReviewTags() {
-        Set<String> reviewTags = new HashSet<>();
-        
-        getAllReviews().forEach(review -> {
-            if (review.getTags() != null) {
-                reviewTags.addAll(review.getTags());
-            }
-        });
-        
-        // 过滤出有实际评测的标签
-        Set<String> validReviewTags = new HashSet<>();
-        for (String tag : reviewTags) {
-            List<Review> reviewsWithTag = getReviewsByTag(tag);
-            if (!reviewsWithTag.isEmpty()) {
-                validReviewTags.add(tag);
-            }
-        }
-        
-        return validReviewTags;
+        cacheDependencies.record("tags", "reviewTags", ContentCacheDependencies.tagSet(REVIEWS_DIR));
+        // 索引中的标签都至少有一篇评测
+        return getSnapshot().getReviews().tags();
     }
     
     /**
      * 获取有效的标签集合（在搜索中有匹配内容的标签）
      * @return 有效标签集合
      */
-    @Cacheable(value = "tags", key = "'validTags'")
+    @Cacheable(value = "tags", key = "'validTags'", sync = true)
     public Set<String> getValidTags() {
-        Set<String> validTags = new HashSet<>();
-        Set<String> allTags = getAllTags();
-        
-        // 对每个标签进行过滤测试，只保留有实际过滤效果的标签
-        for (String tag : allTags) {
-            // 检查是否有博客文章匹配此标签
-            List<BlogPost> blogPostsWithTag = getBlogPostsByTag(tag);
-            // 检查是否有评测匹配此标签
-            List<Review> reviewsWithTag = getReviewsByTag(tag);
-            
-            // 如果有匹配的内容，则认为是有效标签
-            if (!blogPostsWithTag.isEmpty() || !reviewsWithTag.isEmpty()) {
-                validTags.add(tag);
-            }
+        cacheDependencies.record("tags", "validTags",
+                ContentCacheDependencies.tagSet(BLOGS_DIR), ContentCacheDependencies.tagSet(REVIEWS_DIR));
+        return getSnapshot().getAllTags();
+    }
+    
+    /*
+     * Cache admission: slugs, tags, languages and page numbers come from URLs,
+     * so only keys the published index knows are cached with the content:
+     * known slugs, the listing pages of one known tag or none, up to
+     * MAX_CACHED_PAGE at the default page size, in a site language. Everything
+     * else is computed from the index uncached, or, for slugs, goes to the
+     * small contentMisses cache, which is cleared on every publish. Memory
+     * therefore follows the corpus, not the requests.
+     */
+    
+    public boolean isPublishedBlogPost(String slug) {
+        return getSnapshot().getBlogPosts().bySlug(slug) != null;
+    }
+    
+    public boolean isPublishedReview(String slug) {
+        return getSnapshot().getReviews().bySlug(slug) != null;
+    }
+    
+    public boolean isBlogTag(String tag) {
+        return !getSnapshot().getBlogPosts().byTag(tag).isEmpty();
+    }
+    
+    public boolean isReviewTag(String tag) {
+        return !getSnapshot().getReviews().byTag(tag).isEmpty();
+    }
+    
+    public boolean isContentLanguage(String language) {
+        return ContentSnapshot.LANGUAGES.contains(language);
+    }
+    
+    public boolean isCacheableBlogPage(String language, ContentFilter filter, int page, int size) {
+        return isCacheablePage(language, filter, page, size)
+                && (filter.getTags().isEmpty() || isBlogTag(filter.getTags().get(0)));
+    }
+    
+    public boolean isCacheableReviewPage(String language, ContentFilter filter, int page, int size) {
+        return isCacheablePage(language, filter, page, size)
+                && (filter.getTags().isEmpty() || isReviewTag(filter.getTags().get(0)));
+    }
+    
+    private boolean isCacheablePage(String language, ContentFilter filter, int page, int size) {
+        return isContentLanguage(language) && filter.getBrand() == null && filter.getMinRating() == null
+                && filter.getTags().size() <= 1 && page >= 1 && page <= MAX_CACHED_PAGE && size == listingPageSize;
+    }
+    
+    /**
+     * Compute the value of a blogPosts, reviews or tags entry from its key,
+     * bypassing the cache (these are calls on this instance, not the proxy).
+     * Used to refresh entries in the background and to prime them.
+     * @return null if the key is no longer admitted, e.g. its item or tag is gone
+     */
+    public Object loadCacheEntry(String cacheName, String key) {
+        switch (cacheName) {
+            case "blogPosts":
+                if ("allBlogPosts".equals(key)) {
+                    return getAllBlogPosts();
+                } else if (key.startsWith("latestBlogPosts-")) {
+                    return getLatestBlogPosts(Integer.parseInt(key.substring("latestBlogPosts-".length())));
+                } else if (key.startsWith("homepageBlogPosts-")) {
+                    int dash = key.lastIndexOf('-');
+                    String language = key.substring("homepageBlogPosts-".length(), dash);
+                    return isContentLanguage(language)
+                            ? getHomepageBlogPosts(language, Integer.parseInt(key.substring(dash + 1))) : null;
+                } else if (key.startsWith("blogPage-")) {
+                    ListingPageKey page = ListingPageKey.parse(key.substring("blogPage-".length()));
+                    return isCacheableBlogPage(page.language, page.filter, page.page, listingPageSize)
+                            ? getBlogPostPage(page.language, page.order, page.filter, page.page, listingPageSize) : null;
+                }
+                return isPublishedBlogPost(key) ? getBlogPostBySlug(key) : null;
+            case "reviews":
+                if ("allReviews".equals(key)) {
+                    return getAllReviews();
+                } else if (key.startsWith("latestReviews-")) {
+                    return getLatestReviews(Integer.parseInt(key.substring("latestReviews-".length())));
+                } else if (key.startsWith("homepageReviews-")) {
+                    int dash = key.lastIndexOf('-');
+                    String language = key.substring("homepageReviews-".length(), dash);
+                    return isContentLanguage(language)
+                            ? getHomepageReviews(language, Integer.parseInt(key.substring(dash + 1))) : null;
+                } else if (key.startsWith("reviewPage-")) {
+                    ListingPageKey page = ListingPageKey.parse(key.substring("reviewPage-".length()));
+                    return isCacheableReviewPage(page.language, page.filter, page.page, listingPageSize)
+                            ? getReviewPage(page.language, page.order, page.filter, page.page, listingPageSize) : null;
+                }
+                return isPublishedReview(key) ? getReviewBySlug(key) : null;
+            case "tags":
+                switch (key) {
+                    case "allTags":
+                        return getAllTags();
+                    case "validTags":
+                        return getValidTags();
+                    case "blogTags":
+                        return getBlogTags();
+                    case "reviewTags":
+                        return getReviewTags();
+                    case "blogTagCounts":
+                        return getBlogTagCounts();
+                    case "reviewTagCounts":
+                        return getReviewTagCounts();
+                    default:
+                        return null;
+                }
+            default:
+                return null;
         }
+    }
+    
+    /**
+     * Cache key of an admitted listing page: prefix-language-ORDER-tag-page, with an empty tag for all items
+     */
+    public static String listingPageKey(String prefix, String language, ContentOrder order, ContentFilter filter, int page) {
+        return prefix + "-" + language + "-" + order.name() + "-"
+                + (filter.getTags().isEmpty() ? "" : filter.getTags().get(0)) + "-" + page;
+    }
+    
+    /**
+     * Arguments of a listing page key, after its prefix
+     */
+    private static final class ListingPageKey {
+        private String language;
+        private ContentOrder order;
+        private ContentFilter filter;
+        private int page;
         
-        return validTags;
+        static ListingPageKey parse(String key) {
+            // language-ORDER-tag-page; the tag may contain dashes
+            int first = key.indexOf('-');
+            int second = key.indexOf('-', first + 1);
+            int last = key.lastIndexOf('-');
+            ListingPageKey parsed = new ListingPageKey();
+            parsed.language = key.substring(0, first);
+            parsed.order = ContentOrder.valueOf(key.substring(first + 1, second));
+            String tag = key.substring(second + 1, last);
+            parsed.filter = tag.isEmpty() ? ContentFilter.NONE : ContentFilter.tags(Collections.singletonList(tag), true);
+            parsed.page = Integer.parseInt(key.substring(last + 1));
+            return parsed;
+        }
+    }
+    
+    // An unfiltered page shifts with any change; a tag page only with items that have or had the tag
+    private static String listingDependency(String type, ContentFilter filter) {
+        return filter.getTags().isEmpty() ? ContentCacheDependencies.all(type)
+                : ContentCacheDependencies.tag(type, filter.getTags().get(0));
+    }
+    
+    /**
+     * Misses are cached only for keys short enough to be a plausible slug or tag
+     */
+    public boolean isCacheableMiss(String key) {
+        return key != null && key.length() <= MAX_MISS_KEY_LENGTH;
+    }
+    
+    /**
+     * 指定语言的博客视图（已解析翻译与回退字段），内容变更时预先构建
+     */
+    public ContentIndex<BlogPost> getBlogPostView(String language) {
+        return getSnapshot().getBlogPosts(language);
+    }
+    
+    /**
+     * 指定语言的评测视图（已解析翻译与回退字段），内容变更时预先构建
+     */
+    public ContentIndex<Review> getReviewView(String language) {
+        return getSnapshot().getReviews(language);
+    }
+    
+    /**
+     * 首页博客（sortOrder > 0，按 sortOrder 降序）
+     */
+    @Cacheable(value = "blogPosts", key = "'homepageBlogPosts-' + #language + '-' + #limit",
+            condition = "@yamlContentService.isContentLanguage(#language)")
+    public List<BlogPost> getHomepageBlogPosts(String language, int limit) {
+        if (isContentLanguage(language)) {
+            cacheDependencies.record("blogPosts", "homepageBlogPosts-" + language + "-" + limit,
+                    ContentCacheDependencies.homepage(BLOGS_DIR));
+        }
+        return getBlogPostView(language).homepage(limit);
+    }
+    
+    /**
+     * 首页评测（sortOrder > 0，按 sortOrder 降序）
+     */
+    @Cacheable(value = "reviews", key = "'homepageReviews-' + #language + '-' + #limit",
+            condition = "@yamlContentService.isContentLanguage(#language)")
+    public List<Review> getHomepageReviews(String language, int limit) {
+        if (isContentLanguage(language)) {
+            cacheDependencies.record("reviews", "homepageReviews-" + language + "-" + limit,
+                    ContentCacheDependencies.homepage(REVIEWS_DIR));
+        }
+        return getReviewView(language).homepage(limit);
+    }
+    
+    /**
+     * 博客分页（页码从 1 开始），只包含匹配 filter 的文章
+     */
+    @Cacheable(value = "blogPosts", key = "T(com.pettrackerreview.service.YamlContentService).listingPageKey('blogPage', #language, #order, #filter, #page)",
+            condition = "@yamlContentService.isCacheableBlogPage(#language, #filter, #page, #size)")
+    public ContentPage<BlogPost> getBlogPostPage(String language, ContentOrder order, ContentFilter filter, int page, int size) {
+        if (isCacheableBlogPage(language, filter, page, size)) {
+            cacheDependencies.record("blogPosts", listingPageKey("blogPage", language, order, filter, page),
+                    listingDependency(BLOGS_DIR, filter));
+        }
+        return getBlogPostView(language).page(order, filter, page, size);
+    }
+    
+    /**
+     * 博客游标分页：cursor 之后的 size 篇；cursor 为空时从第一篇开始
+     */
+    public ContentPage<BlogPost> getBlogPostsAfter(String language, ContentOrder order, ContentFilter filter, String cursor, int size) {
+        return getBlogPostView(language).after(order, filter, cursor, size);
+    }
+    
+    /**
+     * 博客游标分页：cursor 之前的 size 篇
+     */
+    public ContentPage<BlogPost> getBlogPostsBefore(String language, ContentOrder order, ContentFilter filter, String cursor, int size) {
+        return getBlogPostView(language).before(order, filter, cursor, size);
+    }
+    
+    /**
+     * 评测分页（页码从 1 开始），只包含匹配 filter 的评测
+     */
+    @Cacheable(value = "reviews", key = "T(com.pettrackerreview.service.YamlContentService).listingPageKey('reviewPage', #language, #order, #filter, #page)",
+            condition = "@yamlContentService.isCacheableReviewPage(#language, #filter, #page, #size)")
+    public ContentPage<Review> getReviewPage(String language, ContentOrder order, ContentFilter filter, int page, int size) {
+        if (isCacheableReviewPage(language, filter, page, size)) {
+            cacheDependencies.record("reviews", listingPageKey("reviewPage", language, order, filter, page),
+                    listingDependency(REVIEWS_DIR, filter));
+        }
+        return getReviewView(language).page(order, filter, page, size);
+    }
+    
+    /**
+     * 评测游标分页：cursor 之后的 size 篇；cursor 为空时从第一篇开始
+     */
+    public ContentPage<Review> getReviewsAfter(String language, ContentOrder order, ContentFilter filter, String cursor, int size) {
+        return getReviewView(language).after(order, filter, cursor, size);
+    }
+    
+    /**
+     * 评测游标分页：cursor 之前的 size 篇
+     */
+    public ContentPage<Review> getReviewsBefore(String language, ContentOrder order, ContentFilter filter, String cursor, int size) {
+        return getReviewView(language).before(order, filter, cursor, size);
+    }
+    
+    /**
+     * 博客标签及其文章数，按数量降序
+     */
+    @Cacheable(value = "tags", key = "'blogTagCounts'", sync = true)
+    public Map<String, Integer> getBlogTagCounts() {
+        cacheDependencies.record("tags", "blogTagCounts", ContentCacheDependencies.tagCounts(BLOGS_DIR));
+        return getSnapshot().getBlogPosts().tagIndex().counts();
+    }
+    
+    /**
+     * 博客标签在筛选结果中的文章数，按数量降序；按请求计算，不缓存
+     */
+    public Map<String, Integer> getBlogTagCounts(ContentFilter filter) {
+        return getSnapshot().getBlogPosts().tagCounts(filter);
     }
     
-    @Cacheable(value = "blogPosts", key = "'blogPostsByTag-' + #tag")
-    public List<BlogPost> getBlogPostsByTag(String tag) {
-        return getAllBlogPosts().stream()
-                .filter(post -> post.getTags() != null && post.getTags().contains(tag))
-                .collect(Collectors.toList());
+    /**
+     * 评测标签及其评测数，按数量降序
+     */
+    @Cacheable(value = "tags", key = "'reviewTagCounts'", sync = true)
+    public Map<String, Integer> getReviewTagCounts() {
+        cacheDependencies.record("tags", "reviewTagCounts", ContentCacheDependencies.tagCounts(REVIEWS_DIR));
+        return getSnapshot().getReviews().tagIndex().counts();
     }
     
-    @Cacheable(value = "reviews", key = "'reviewsByTag-' + #tag")
-    public List<Review> getReviewsByTag(String tag) {
-        return getAllReviews().stream()
-                .filter(review -> review.getTags() != null && review.getTags().contains(tag))
-                .collect(Collectors.toList());
+    /**
+     * 评测标签在筛选结果（标签、品牌、评分）中的评测数，按数量降序；按请求计算，不缓存
+     */
+    public Map<String, Integer> getReviewTagCounts(ContentFilter filter) {
+        return getSnapshot().getReviews().tagCounts(filter);
     }
     
     /**
@@ -365,10 +1267,10 @@ public class YamlContentService {
         
         try {
             // Export blog files
-            exportDirectoryToZip(zos, getContentDir() + "/" + BLOGS_DIR, "blogs/");
+            exportDirectoryToZip(zos, getBlogsDirectory(), "blogs/");
             
             // Export review files
-            exportDirectoryToZip(zos, getContentDir() + "/" + REVIEWS_DIR, "reviews/");
+            exportDirectoryToZip(zos, getReviewsDirectory(), "reviews/");
             
         } finally {
             zos.close();
@@ -378,37 +1280,22 @@ public class YamlContentService {
     }
     
     /**
-     * Add all YAML files from specified directory to ZIP archive
+     * Add all YAML documents of the specified directory to ZIP archive
      * @param zos ZIP output stream
-     * @param dirPath Directory path to export
+     * @param directory Content directory to export
      * @param zipPrefix Path prefix within ZIP
-     * @throws IOException If IO error occurs while reading files
-     */
-    private void exportDirectoryToZip(ZipOutputStream zos, String dirPath, String zipPrefix) throws IOException {
-        File directory = new File(dirPath);
-        
-        if (directory.exists() && directory.isDirectory()) {
-            File[] yamlFiles = directory.listFiles((dir, name) -> 
-                name.endsWith(".yaml") || name.endsWith(".yml"));
-            
-            if (yamlFiles != null) {
-                for (File file : yamlFiles) {
-                    // Create ZIP entry
-                    ZipEntry zipEntry = new ZipEntry(zipPrefix + file.getName());
-                    zos.putNextEntry(zipEntry);
-                    
-                    // Write file content
-                    try (FileInputStream fis = new FileInputStream(file)) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        while ((length = fis.read(buffer)) >= 0) {
-                            zos.write(buffer, 0, length);
-                        }
-                    }
-                    
-                    zos.closeEntry();
-                }
+     * @throws IOException If IO error occurs while reading documents
+     */
+    private void exportDirectoryToZip(ZipOutputStream zos, File directory, String zipPrefix) throws IOException {
+        for (File file : repository.list(directory).keySet()) {
+            byte[] content = repository.read(file);
+            if (content == null) {
+                continue;
             }
+            // Create ZIP entry
+            zos.putNextEntry(new ZipEntry(zipPrefix + file.getName()));
+            zos.write(content);
+            zos.closeEntry();
         }
     }
     
@@ -419,23 +1306,8 @@ public class YamlContentService {
     public Map<String, Integer> getExportStatistics() {
         Map<String, Integer> stats = new HashMap<>();
         
-        // Count blog files
-        File blogsDir = new File(getContentDir() + "/" + BLOGS_DIR);
-        int blogCount = 0;
-        if (blogsDir.exists() && blogsDir.isDirectory()) {
-            File[] blogFiles = blogsDir.listFiles((dir, name) -> 
-                name.endsWith(".yaml") || name.endsWith(".yml"));
-            blogCount = blogFiles != null ? blogFiles.length : 0;
-        }
-        
-        // Count review files
-        File reviewsDir = new File(getContentDir() + "/" + REVIEWS_DIR);
-        int reviewCount = 0;
-        if (reviewsDir.exists() && reviewsDir.isDirectory()) {
-            File[] reviewFiles = reviewsDir.listFiles((dir, name) -> 
-                name.endsWith(".yaml") || name.endsWith(".yml"));
-            reviewCount = reviewFiles != null ? reviewFiles.length : 0;
-        }
+        int blogCount = listQuietly(getBlogsDirectory()).size();
+        int reviewCount = listQuietly(getReviewsDirectory()).size();
         
         stats.put("blogFiles", blogCount);
         stats.put("reviewFiles", reviewCount);
@@ -451,12 +1323,34 @@ public class YamlContentService {
      * @return Import result information
      * @throws IOException If IO error occurs during import
      */
-    @Caching(evict = {
-        @CacheEvict(value = "blogPosts", key = "'allBlogPosts'", condition = "#contentType == 'blogs'"),
-        @CacheEvict(value = "reviews", key = "'allReviews'", condition = "#contentType == 'reviews'"),
-        @CacheEvict(value = "tags", allEntries = true)
-    })
     public ImportResult importYamlFile(MultipartFile file, String contentType) throws IOException {
+        return importYamlFile(file, contentType, null);
+    }
+    
+    /**
+     * Import several YAML files as one group commit: every file is synced and
+     * moved into place as it is written, but the directory is synced and the
+     * new content published once for the whole batch
+     * @param files Uploaded YAML files
+     * @param contentType Content type ("blogs" or "reviews")
+     * @return One import result per file, in order
+     * @throws IOException If the batch could not be made durable
+     */
+    public List<ImportResult> importYamlFiles(List<MultipartFile> files, String contentType) throws IOException {
+        List<ImportResult> results = new ArrayList<>(files.size());
+        WriteBatch batch = openBatch();
+        try {
+            for (MultipartFile file : files) {
+                results.add(importYamlFile(file, contentType, batch));
+            }
+        } finally {
+            commitBatch(batch);
+        }
+        logger.info("Imported {} of {} {} file(s) in one batch", batch.count, files.size(), contentType);
+        return results;
+    }
+    
+    private ImportResult importYamlFile(MultipartFile file, String contentType, WriteBatch batch) {
         ImportResult result = new ImportResult();
         
         // Validate content type
@@ -489,7 +1383,7 @@ public class YamlContentService {
             if ("blogs".equals(contentType)) {
                 try {
                     BlogPost blogPost = validateAndParseBlogPost(content);
-                    saveBlogPost(blogPost);
+                    writeItem(blogCorpus, BLOGS_DIR, blogPost, null, null, batch);
                     result.setSuccess(true);
                     result.setMessage("Blog post imported successfully: " + blogPost.getTitle());
                     result.setImportedFileName(blogPost.getSlug() + ".yaml");
@@ -503,7 +1397,7 @@ public class YamlContentService {
             } else {
                 try {
                     Review review = validateAndParseReview(content);
-                    saveReview(review);
+                    writeItem(reviewCorpus, REVIEWS_DIR, review, null, null, batch);
                     result.setSuccess(true);
                     result.setMessage("Review imported successfully: " + review.getTitle());
                     result.setImportedFileName(review.getSlug() + ".yaml");
@@ -597,12 +1491,7 @@ public class YamlContentService {
      */
     public BlogPost validateAndParseBlogPost(String yamlContent) {
         try {
-            // Create a custom mapper that can ignore unknown properties
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-            mapper.registerModule(new JavaTimeModule());
-            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            
-            BlogPost blogPost = mapper.readValue(yamlContent, BlogPost.class);
+            BlogPost blogPost = contentLoader.parseString(yamlContent, BlogPost.class);
             
             // Validate required fields with specific error messages
             if (blogPost.getTitle() == null || blogPost.getTitle().trim().isEmpty()) {
@@ -655,12 +1544,7 @@ public class YamlContentService {
      */
     public Review validateAndParseReview(String yamlContent) {
         try {
-            // Create a custom mapper that can ignore unknown properties
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-            mapper.registerModule(new JavaTimeModule());
-            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            
-            Review review = mapper.readValue(yamlContent, Review.class);
+            Review review = contentLoader.parseString(yamlContent, Review.class);
             
             // Validate required fields with specific error messages
             if (review.getTitle() == null || review.getTitle().trim().isEmpty()) {
@@ -792,11 +1676,6 @@ public class YamlContentService {
      * @return Import result information
      * @throws IOException If IO error occurs during import
      */
-    @Caching(evict = {
-        @CacheEvict(value = "blogPosts", key = "'allBlogPosts'", condition = "#contentType == 'blogs'"),
-        @CacheEvict(value = "reviews", key = "'allReviews'", condition = "#contentType == 'reviews'"),
-        @CacheEvict(value = "tags", allEntries = true)
-    })
     public ImportResult importYamlContent(String content, String contentType) throws IOException {
         ImportResult result = new ImportResult();
         
@@ -874,6 +1753,46 @@ public class YamlContentService {
         return yamlMapper.writeValueAsString(review);
     }
     
+    /**
+     * Group commit state of a multi-file write
+     */
+    private static final class WriteBatch {
+        private final Set<File> directories = new HashSet<>();
+        private final List<PendingWrite<?>> pending = new ArrayList<>();
+        private int count;
+        
+        void written(File directory) {
+            directories.add(directory);
+            count++;
+        }
+    }
+    
+    /**
+     * A batched write that is on disk but not yet in the corpus
+     */
+    private static final class PendingWrite<T extends ContentItem> {
+        private final ContentCorpus<T> corpus;
+        private final File file;
+        private final File previous;
+        private final T item;
+        private final ContentFileState state;
+        
+        PendingWrite(ContentCorpus<T> corpus, File file, File previous, T item, ContentFileState state) {
+            this.corpus = corpus;
+            this.file = file;
+            this.previous = previous;
+            this.item = item;
+            this.state = state;
+        }
+        
+        void merge() {
+            if (previous != null) {
+                corpus.remove(previous);
+            }
+            corpus.put(file, item, state);
+        }
+    }
+    
     /**
      * Preview result class
      */
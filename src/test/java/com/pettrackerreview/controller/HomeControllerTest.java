@@ -0,0 +1,47 @@
+package com.pettrackerreview.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HomeControllerTest {
+
+    @Test
+    void pageUrlEncodesTheNewValue() {
+        MockHttpServletRequest request = reviews("tag=GPS%20tracker&page=2");
+
+        String url = HomeController.pageUrl(request, "brand", "Tractive & Co");
+
+        assertThat(url).isEqualTo("http://localhost/reviews?tag=GPS%20tracker&brand=Tractive%20%26%20Co");
+    }
+
+    @Test
+    void pageUrlKeepsAnEncodedBrandAsOneParameter() {
+        MockHttpServletRequest request = reviews("brand=Tractive%20%26%20Co&after=abc");
+
+        String url = HomeController.pageUrl(request, "sort", "rating");
+
+        assertThat(url).isEqualTo("http://localhost/reviews?brand=Tractive%20%26%20Co&sort=rating");
+    }
+
+    @Test
+    void pageUrlEncodesPlus() {
+        String url = HomeController.pageUrl(reviews(null), "brand", "Paws+");
+
+        assertThat(url).isEqualTo("http://localhost/reviews?brand=Paws%2B");
+    }
+
+    @Test
+    void pageUrlRemovesTheParameterForNull() {
+        String url = HomeController.pageUrl(reviews("brand=Tractive%20%26%20Co&minRating=4.0"), "brand", null);
+
+        assertThat(url).isEqualTo("http://localhost/reviews?minRating=4.0");
+    }
+
+    private static MockHttpServletRequest reviews(String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/reviews");
+        request.setQueryString(query);
+        return request;
+    }
+}
@@ -0,0 +1,174 @@
+package com.pettrackerreview.service;
+
+import com.pettrackerreview.model.BlogPost;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bodies kept as plain strings on the item (no lazy loading, no compression)
+ */
+@SpringBootTest(properties = {
+        "app.content.lazy-bodies=false",
+        "app.content.compress-bodies=false",
+        "app.content.snapshot.enabled=false",
+        "app.content.watch.enabled=false",
+        "app.content.events.queue-capacity=" + YamlContentServiceTest.QUEUE_CAPACITY
+})
+class YamlContentServiceTest {
+
+    static final int QUEUE_CAPACITY = 8;
+
+    private static final Path CONTENT_DIR = createTempDirectory();
+
+    private static final String BODY = "<p>Intro</p><img src=\"/images/a.png\" alt=\"a\">"
+            + "<p>More</p><img src=\"/images/b.png\" alt=\"b\">";
+
+    @Autowired
+    private YamlContentService contentService;
+
+    @Autowired
+    private ContentEventBus eventBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void contentDirectories(DynamicPropertyRegistry registry) {
+        registry.add("app.content.dir", CONTENT_DIR::toString);
+        registry.add("app.image.upload.dir", () -> CONTENT_DIR.resolve("uploads/images").toString());
+        registry.add("app.image.metadata.dir", () -> CONTENT_DIR.resolve("uploads/metadata").toString());
+    }
+
+    @AfterAll
+    static void deleteContentDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(CONTENT_DIR);
+    }
+
+    @Test
+    void editorRoundTripKeepsTheBodyAsWritten() throws IOException {
+        BlogPost post = new BlogPost();
+        post.setTitle("Round trip");
+        post.setSlug("round-trip");
+        post.setAuthor("Test");
+        post.setDate(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        post.setTags(Arrays.asList("gps"));
+        post.setContent(BODY);
+        contentService.saveBlogPost(post);
+        Path file = CONTENT_DIR.resolve("blogs/round-trip.yaml");
+        String written = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        contentService.reloadContent();
+
+        BlogPost loaded = contentService.getManagedBlogPost("round-trip");
+        assertThat(loaded.getContent()).isEqualTo(BODY);
+        assertThat(loaded.getRenderedContent()).contains("loading=\"lazy\"").contains("decoding=\"async\"");
+
+        // What the YAML editor shows, edited and saved back
+        String yaml = contentService.convertBlogPostToYaml(loaded);
+        assertThat(yaml).doesNotContain("loading=").doesNotContain("decoding=");
+        BlogPost edited = contentService.validateAndParseBlogPost(yaml.replace("Round trip", "Round trip, edited"));
+        contentService.saveBlogPost(edited, "round-trip", contentService.getBlogPostVersion("round-trip"));
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .isEqualTo(written.replace("Round trip", "Round trip, edited"));
+
+        // Saving again without changes leaves the file as it was
+        byte[] saved = Files.readAllBytes(file);
+        BlogPost unchanged = contentService.getManagedBlogPost("round-trip");
+        assertThat(unchanged.getContent()).isEqualTo(BODY);
+        contentService.saveBlogPost(unchanged, "round-trip", contentService.getBlogPostVersion("round-trip"));
+        assertThat(Files.readAllBytes(file)).isEqualTo(saved);
+    }
+
+    @Test
+    void renameLeavesOnlyTheNewFile() throws IOException {
+        BlogPost post = new BlogPost();
+        post.setTitle("Before rename");
+        post.setSlug("before-rename");
+        post.setDate(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        post.setContent("<p>Body</p>");
+        contentService.saveBlogPost(post);
+
+        BlogPost renamed = contentService.getManagedBlogPost("before-rename");
+        renamed.setSlug("after-rename");
+        contentService.saveBlogPost(renamed, "before-rename", contentService.getBlogPostVersion("before-rename"));
+
+        Path blogs = CONTENT_DIR.resolve("blogs");
+        assertThat(blogs.resolve("before-rename.yaml")).doesNotExist();
+        assertThat(blogs.resolve("after-rename.yaml")).exists();
+        assertThat(blogs.resolve(".after-rename.yaml.rename")).doesNotExist();
+        assertThat(contentService.getManagedBlogPost("before-rename")).isNull();
+    }
+
+    @Test
+    void reloadResyncsSubscribersInsteadOfSendingAnEventPerItem() throws Exception {
+        Path blogs = Files.createDirectories(CONTENT_DIR.resolve("blogs"));
+        int items = QUEUE_CAPACITY * 3;
+        for (int i = 0; i < items; i++) {
+            Files.write(blogs.resolve("bulk-" + i + ".yaml"), ("title: \"Bulk " + i + "\"\n"
+                    + "slug: \"bulk-" + i + "\"\ndate: \"2024-01-02 03:04:05\"\ncontent: \"<p>Bulk</p>\"\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        List<ContentEvent> events = Collections.synchronizedList(new ArrayList<>());
+        BlockingQueue<Integer> resyncs = new LinkedBlockingQueue<>();
+        CountDownLatch created = new CountDownLatch(1);
+        eventBus.subscribe("test-reload", new ContentEventListener() {
+            @Override
+            public void onEvent(ContentEvent event) {
+                events.add(event);
+                created.countDown();
+            }
+
+            @Override
+            public void resync() {
+                resyncs.add(contentService.getSnapshot().getBlogPosts().all().size());
+            }
+        });
+        assertThat(resyncs.poll(10, TimeUnit.SECONDS)).isNotNull();
+
+        contentService.reloadContent();
+        assertThat(resyncs.poll(10, TimeUnit.SECONDS)).isGreaterThanOrEqualTo(items);
+
+        // Later saves are delivered as events again, with nothing queued before them
+        BlogPost post = new BlogPost();
+        post.setTitle("After reload");
+        post.setSlug("after-reload");
+        post.setDate(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        post.setContent("<p>Body</p>");
+        contentService.saveBlogPost(post);
+        assertThat(created.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0)).isInstanceOf(ContentCreated.class);
+        assertThat(resyncs).isEmpty();
+        assertThat(meterRegistry.counter("content.events.dropped", "subscriber", "test-reload").count()).isZero();
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("content");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}